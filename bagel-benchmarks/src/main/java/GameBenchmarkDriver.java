@@ -0,0 +1,200 @@
+import benchmarks.GameDriver;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * GameBenchmarkDriver lets the benchmarks (which have to be in a package) use the game's classes. Being in the default
+ * package it can also use what the game only shares within the package, such as Peg.onCollide.
+ */
+public class GameBenchmarkDriver implements GameDriver {
+    private static final double BALL_SPEED = 10;
+    // every game is played with the same seed, so every run of a benchmark does the same work
+    private static final long GAME_SEED = 42;
+
+    private World world = new World();
+    private PegStore pegs;
+    private final ArrayList<Ball> balls = new ArrayList<>();
+    private final ArrayList<Ball> newBalls = new ArrayList<>();
+    private final ArrayList<Peg> nearbyPegs = new ArrayList<>();
+
+    private Simulation simulation;
+    private int frameCount = 0;
+
+    @Override
+    public void loadLevel(int level) {
+        world = new World();
+        pegs = loadSimulation(world, level).getPegs();
+    }
+
+    @Override
+    public void loadScaledBoard(int numPegs) {
+        PegStore[] levels = new PegStore[Simulation.MAX_LEVEL];
+        for (int level = 0; level < levels.length; level++) {
+            levels[level] = loadSimulation(new World(), level).getPegs();
+        }
+
+        // count how many copies of the levels are needed, then lay them out in a square
+        int copies = 0;
+        int total = 0;
+        while (total < numPegs) {
+            total += countAlive(levels[copies % levels.length]);
+            copies++;
+        }
+        int columns = (int) Math.ceil(Math.sqrt(copies));
+        int rows = (copies + columns - 1) / columns;
+        world = new World(columns * World.DEFAULT_WIDTH, rows * World.DEFAULT_HEIGHT);
+        pegs = new PegStore(world);
+
+        for (int copy = 0; copy < copies; copy++) {
+            PegStore level = levels[copy % levels.length];
+            double offsetX = (copy % columns) * World.DEFAULT_WIDTH;
+            double offsetY = (copy / columns) * World.DEFAULT_HEIGHT;
+            for (int slot = 0; slot < level.getNumSlots(); slot++) {
+                if (level.isAlive(slot)) {
+                    pegs.add(copyPeg(level.getColour(slot), level.getShape(slot),
+                            level.getX(slot) + offsetX, level.getY(slot) + offsetY));
+                }
+            }
+        }
+    }
+
+    @Override
+    public int readLevel(int level, boolean compiled) {
+        int[] numPegs = {0};
+        LevelFile.PegVisitor countPeg = (colour, shape, x, y) -> numPegs[0]++;
+        if (compiled) {
+            if (!LevelFile.readCompiled(Paths.get("res", level + ".lvl"), countPeg)) {
+                throw new IllegalStateException("res/" + level + ".lvl is missing or not valid");
+            }
+        } else {
+            try {
+                LevelFile.readCsv(new File("res", level + ".csv"), countPeg);
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException("Run the benchmarks from a directory with the game's res folder", e);
+            }
+        }
+        return numPegs[0];
+    }
+
+    @Override
+    public int getNumPegs() {
+        return countAlive(pegs);
+    }
+
+    @Override
+    public void placeBalls(int numBalls, long seed) {
+        Random random = new Random(seed);
+        balls.clear();
+        while (balls.size() < numBalls) {
+            int slot = random.nextInt(pegs.getNumSlots());
+            if (!pegs.isAlive(slot)) {
+                continue;
+            }
+            // somewhere within a peg's width of the peg's centre, so most balls touch it
+            double x = pegs.getX(slot) + (random.nextDouble() * 2 - 1) * pegs.get(slot).getWidth();
+            double y = pegs.getY(slot) + (random.nextDouble() * 2 - 1) * pegs.get(slot).getHeight();
+            double angle = random.nextDouble() * 2 * Math.PI;
+            Ball ball = new Ball(x, y, false, true);
+            ball.setDx(Math.cos(angle) * BALL_SPEED);
+            ball.setDy(Math.sin(angle) * BALL_SPEED);
+            balls.add(ball);
+        }
+    }
+
+    @Override
+    public int broadphase() {
+        int intersections = 0;
+        for (Ball ball : balls) {
+            nearbyPegs.clear();
+            pegs.getGrid().findNear(ball, nearbyPegs);
+            for (Peg peg : nearbyPegs) {
+                if (ball.intersects(peg)) {
+                    intersections++;
+                }
+            }
+        }
+        return intersections;
+    }
+
+    @Override
+    public int collide() {
+        // the same as the peg part of Simulation.checkForCollision, without removing the destroyed pegs
+        int collisions = 0;
+        for (Ball ball : balls) {
+            nearbyPegs.clear();
+            pegs.getGrid().findNear(ball, nearbyPegs);
+            for (Peg peg : nearbyPegs) {
+                if (ball.intersects(peg)) {
+                    if (peg.getColour() != Peg.Colour.GREEN) {
+                        peg.onCollide(ball, pegs.getGrid());
+                    } else {
+                        ((GreenPeg) peg).onGreenPegCollide(ball, pegs.getGrid(), newBalls);
+                    }
+                    collisions++;
+                }
+            }
+        }
+        newBalls.clear();
+        return collisions;
+    }
+
+    @Override
+    public void stepBalls() {
+        for (Ball ball : balls) {
+            ball.update(world);
+        }
+    }
+
+    @Override
+    public int frame() {
+        if (simulation == null || simulation.isGameOver()) {
+            simulation = loadSimulation(new World(), 0);
+        }
+        frameCount++;
+        double targetX = (frameCount * 37) % simulation.getWorld().getWidth();
+        simulation.update(true, targetX, simulation.getWorld().getHeight() / 2);
+        return simulation.getBalls().size();
+    }
+
+    /**
+     * starts a simulation at the given level
+     */
+    private static Simulation loadSimulation(World world, int level) {
+        try {
+            return new Simulation(world, level, new SplittableRandom(GAME_SEED));
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException("Run the benchmarks from a directory with the game's res folder", e);
+        }
+    }
+
+    /**
+     * creates a peg of the given colour, green pegs are copied as blue ones since there is only one green peg
+     */
+    private static Peg copyPeg(Peg.Colour colour, Peg.Shape shape, double x, double y) {
+        switch (colour) {
+            case GREY:
+                return new GreyPeg(shape, x, y);
+            case RED:
+                return new RedPeg(shape, x, y);
+            default:
+                return new BluePeg(shape, x, y);
+        }
+    }
+
+    /**
+     * counts the alive pegs of a store
+     */
+    private static int countAlive(PegStore pegs) {
+        int count = 0;
+        for (Peg.Colour colour : Peg.Colour.values()) {
+            count += pegs.count(colour);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,76 @@
+package bagel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submitting a frame of sprites to a RenderQueue and rendering them into a {@link RecordingBackend}, which records
+ * every job instead of drawing it. This covers everything between Image.draw and the GL calls, without needing a
+ * window.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderSubmissionBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"1000", "10000"})
+    public int numSprites;
+
+    /**
+     * Whether the sprites are drawn with only the default options, or with every option set.
+     */
+    @Param({"false", "true"})
+    public boolean allOptions;
+
+    private final RenderQueue queue = new RenderQueue();
+    private final RecordingBackend backend = new RecordingBackend();
+    private final Texture tex = new Texture("benchmark", 32, 32);
+    private DrawOptions options;
+    private float[] xs;
+    private float[] ys;
+
+    @Setup
+    public void setUp() {
+        options = new DrawOptions();
+        if (allOptions) {
+            options.setScale(1.5, 0.5)
+                    .setRotation(0.25)
+                    .setSection(4, 4, 24, 24)
+                    .setBlendColour(1, 0.5, 0.5, 0.75);
+        }
+        Random random = new Random(SEED);
+        xs = new float[numSprites];
+        ys = new float[numSprites];
+        for (int i = 0; i < numSprites; i++) {
+            xs[i] = random.nextFloat() * 1024;
+            ys[i] = random.nextFloat() * 768;
+        }
+    }
+
+    @Benchmark
+    public float submitFrame() {
+        for (int i = 0; i < numSprites; i++) {
+            queue.submit(tex, xs[i], ys[i], options);
+        }
+        queue.renderAll(backend);
+        backend.endFrame();
+        RecordedFrame frame = backend.getLastFrame();
+        return frame.get(frame.getNumCommands() - 1, RecordedFrame.X);
+    }
+}
@@ -0,0 +1,103 @@
+package bagel.map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Parsing a generated square TMX map with one layer, stored either as csv or as zlib compressed base 64. The tile set
+ * isn't loaded, since its image needs a window.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TmxLoadingBenchmark {
+    private static final long SEED = 42;
+    private static final int NUM_TILES = 64;
+
+    /**
+     * The width and height of the map in tiles.
+     */
+    @Param({"32", "256"})
+    public int size;
+
+    @Param({"csv", "base64-zlib"})
+    public String encoding;
+
+    private Path tmxFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(SEED);
+        int[] gids = new int[size * size];
+        for (int i = 0; i < gids.length; i++) {
+            gids[i] = 1 + random.nextInt(NUM_TILES);
+        }
+
+        String data;
+        if (encoding.equals("csv")) {
+            StringBuilder csv = new StringBuilder();
+            for (int i = 0; i < gids.length; i++) {
+                csv.append(gids[i]).append(i % size == size - 1 ? ",\n" : ",");
+            }
+            data = csv.substring(0, csv.length() - 2);
+        } else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DeflaterOutputStream zlib = new DeflaterOutputStream(bytes)) {
+                for (int gid : gids) {
+                    zlib.write(gid);
+                    zlib.write(gid >> 8);
+                    zlib.write(gid >> 16);
+                    zlib.write(gid >> 24);
+                }
+            }
+            data = Base64.getEncoder().encodeToString(bytes.toByteArray());
+        }
+        String dataElement = encoding.equals("csv")
+                ? "<data encoding=\"csv\">\n" + data + "\n</data>"
+                : "<data encoding=\"base64\" compression=\"zlib\">\n" + data + "\n</data>";
+
+        String tmx = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<map version=\"1.2\" orientation=\"orthogonal\" renderorder=\"right-down\" width=\"" + size
+                + "\" height=\"" + size + "\" tilewidth=\"32\" tileheight=\"32\">\n"
+                + " <tileset firstgid=\"1\" source=\"tiles.tsx\"/>\n"
+                + " <layer id=\"1\" name=\"ground\" width=\"" + size + "\" height=\"" + size + "\">\n"
+                + "  " + dataElement + "\n"
+                + " </layer>\n"
+                + "</map>\n";
+        tmxFile = Files.createTempFile("benchmark", ".tmx");
+        Files.write(tmxFile, tmx.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(tmxFile);
+    }
+
+    @Benchmark
+    public TiledMap loadTmx() {
+        return new TiledMap(tmxFile.toString(), false);
+    }
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moving N balls by one update (wall bounces, gravity and movement).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BallStepBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"1", "100", "10000"})
+    public int numBalls;
+
+    private GameDriver game;
+
+    @Setup
+    public void setUp() {
+        game = GameDriver.create();
+        game.loadLevel(0);
+        game.placeBalls(numBalls, SEED);
+    }
+
+    @Benchmark
+    public void stepBalls() {
+        game.stepBalls();
+    }
+}
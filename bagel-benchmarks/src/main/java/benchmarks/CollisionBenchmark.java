@@ -0,0 +1,60 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collision of balls with the pegs of each level's board, and of a board scaled up to 10,000 pegs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    private static final long SEED = 42;
+
+    /**
+     * A level from res/0.csv to res/4.csv, or "10k" for the scaled board.
+     */
+    @Param({"0", "1", "2", "3", "4", "10k"})
+    public String board;
+
+    @Param({"1", "100"})
+    public int numBalls;
+
+    private GameDriver game;
+
+    @Setup
+    public void setUp() {
+        game = GameDriver.create();
+        if (board.equals("10k")) {
+            game.loadScaledBoard(10_000);
+        } else {
+            game.loadLevel(Integer.parseInt(board));
+        }
+        game.placeBalls(numBalls, SEED);
+    }
+
+    @Benchmark
+    public int broadphase() {
+        return game.broadphase();
+    }
+
+    @Benchmark
+    public int collide() {
+        return game.collide();
+    }
+}
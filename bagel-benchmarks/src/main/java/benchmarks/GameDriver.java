@@ -0,0 +1,68 @@
+package benchmarks;
+
+/**
+ * The game's classes are in the default package, which JMH benchmarks can't be in and which no other package can
+ * import from. The benchmarks drive the game through this interface instead; it is implemented by GameBenchmarkDriver
+ * in the default package of this module, which is created by name.
+ */
+public interface GameDriver {
+    /**
+     * Creates the driver for the game.
+     */
+    static GameDriver create() {
+        try {
+            return (GameDriver) Class.forName("GameBenchmarkDriver").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("GameBenchmarkDriver could not be created", e);
+        }
+    }
+
+    /**
+     * Sets up the board of a level, read from res/<level>.csv as the game does.
+     */
+    void loadLevel(int level);
+
+    /**
+     * Sets up a board of at least numPegs pegs, made by putting copies of the levels' boards next to each other in a
+     * world large enough to hold them, so the pegs are as close together as in the real levels.
+     */
+    void loadScaledBoard(int numPegs);
+
+    /**
+     * Reads the pegs of a level from res/<level>.lvl, or from res/<level>.csv if compiled is false, without setting up
+     * a board. Returns the number of pegs read.
+     */
+    int readLevel(int level, boolean compiled);
+
+    /**
+     * Getter for the number of pegs on the board.
+     */
+    int getNumPegs();
+
+    /**
+     * Puts numBalls balls on the board, each overlapping or next to a random peg and moving in a random direction.
+     */
+    void placeBalls(int numBalls, long seed);
+
+    /**
+     * Finds the pegs near every ball with the peg grid, and counts the ones whose bounding boxes intersect the ball's.
+     */
+    int broadphase();
+
+    /**
+     * Collides every ball with every peg it intersects, as the simulation does. Pegs that are destroyed are not
+     * removed, so every call does the same work. Returns the number of collisions.
+     */
+    int collide();
+
+    /**
+     * Moves every ball by one update.
+     */
+    void stepBalls();
+
+    /**
+     * Runs one update of a whole game, always shooting, at a point that moves along the board every update. A new
+     * game is started once the game is over. Returns the number of balls in play.
+     */
+    int frame();
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a level: reading its pegs from the csv file or the compiled level file, and setting up the whole board
+ * (which reads the compiled level and picks the red and green pegs).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelLoadingBenchmark {
+    @Param({"0", "1", "2", "3", "4"})
+    public int level;
+
+    private GameDriver game;
+
+    @Setup
+    public void setUp() {
+        game = GameDriver.create();
+    }
+
+    @Benchmark
+    public int readCsv() {
+        return game.readLevel(level, false);
+    }
+
+    @Benchmark
+    public int readCompiled() {
+        return game.readLevel(level, true);
+    }
+
+    @Benchmark
+    public int loadLevel() {
+        game.loadLevel(level);
+        return game.getNumPegs();
+    }
+}
@@ -0,0 +1,42 @@
+import bagel.util.Point;
+
+import java.util.SplittableRandom;
+
+/**
+ * An AimPolicy takes the place of the player's mouse when games are played without a player (see BatchSimulator). It
+ * is asked where to aim at the start of every turn, and a ball is shot towards the point it chooses.
+ */
+public interface AimPolicy {
+    /**
+     * Aims anywhere on the board below where the balls are shot from, uniformly at random
+     */
+    AimPolicy RANDOM = (simulation, random) -> {
+        World world = simulation.getWorld();
+        return new Point(random.nextDouble() * world.getWidth(),
+                Ball.INIT_Y + random.nextDouble() * (world.getHeight() - Ball.INIT_Y));
+    };
+
+    /**
+     * Aims straight at one of the red pegs left on the board, chosen at random
+     */
+    AimPolicy RED_PEG = (simulation, random) -> {
+        PegStore pegs = simulation.getPegs();
+        int chosen = -1;
+        int seen = 0;
+        for (int slot = 0; slot < pegs.getNumSlots(); slot++) {
+            // every red peg has the same chance of being the one kept
+            if (pegs.isAlive(slot) && pegs.getColour(slot) == Peg.Colour.RED && random.nextInt(++seen) == 0) {
+                chosen = slot;
+            }
+        }
+        return chosen >= 0 ? new Point(pegs.getX(chosen), pegs.getY(chosen)) : RANDOM.aim(simulation, random);
+    };
+
+    /**
+     * Chooses where to aim the next shot
+     * @param simulation the game, at the start of the turn
+     * @param random the random source of the policy, separate from the game's
+     * @return the point the ball is shot towards
+     */
+    Point aim(Simulation simulation, SplittableRandom random);
+}
@@ -1,6 +1,4 @@
-import bagel.Image;
-import bagel.Window;
-import bagel.util.Point;
+import bagel.util.Side;
 import bagel.util.Vector2;
 
 
@@ -47,9 +45,7 @@ public class Ball extends Sprite {
      * @param dy a double of how much the ball moves on the y-axis
      */
     public void move(double dx, double dy) {
-        double newX = getPosition().x + dx;
-        double newY = getPosition().y + dy;
-        setPosition(new Point(newX, newY));
+        setPosition(getX() + dx, getY() + dy);
     }
 
     /**
@@ -65,15 +61,31 @@ public class Ball extends Sprite {
      */
     public void setFireball(boolean fireball) {
         this.fireball = fireball;
-        setImage(new Image(fireball ? IMAGE_PATH_FIREBALL : IMAGE_PATH_NORMAL));
+        setImagePath(fireball ? IMAGE_PATH_FIREBALL : IMAGE_PATH_NORMAL);
+    }
+
+    /**
+     * changes the velocity of the ball so that it bounces off the side of an object it has struck
+     * @param hitSide the side of the object the ball struck, if it is NONE the ball goes back the way it came
+     */
+    public void bounceOff(Side hitSide) {
+        if (hitSide == Side.BOTTOM || hitSide == Side.TOP) {
+            setDy(-getDy());
+        } else if (hitSide == Side.RIGHT || hitSide == Side.LEFT) {
+            setDx(-getDx());
+        } else {
+            setDy(-getDy());
+            setDx(-getDx());
+        }
     }
 
     /**
      * update function that gives the ball its movement commands along with the fact that
      * the ball bounces off walls by changing direction on the x-axis
+     * @param world the world the ball is bouncing around in
      */
-    public void update() {
-        if (getPosition().x < 0 || getPosition().x > Window.getWidth()) {
+    public void update(World world) {
+        if (getX() < 0 || getX() > world.getWidth()) {
             setDx(-getDx());
         }
 
@@ -0,0 +1,121 @@
+import bagel.util.Point;
+
+import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * BatchSimulator plays many games of ShadowBounce without a window or a player, every shot aimed by an AimPolicy, and
+ * prints what happened on each level over all of them, which helps when balancing the levels. The games are shared
+ * out between every core with a fork/join pool, each game counting into its own SimulationStats which are then added
+ * together, so the games never wait for each other.
+ * Game number i is played with the seed (seed + i), so any of them can be looked at again by starting ShadowBounce
+ * with that seed.
+ *
+ * Usage: BatchSimulator [games] [random|red] [seed], by default 1000 games aimed at random red pegs with seed 0
+ */
+public class BatchSimulator {
+    // games played by a task without splitting it any further
+    private static final long GAMES_PER_TASK = 8;
+    // a game still going after this many updates is given up on, in case a ball never leaves the board
+    private static final int MAX_UPDATES = 1000000;
+
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        AimPolicy policy = args.length > 1 && args[1].equals("random") ? AimPolicy.RANDOM : AimPolicy.RED_PEG;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        long start = System.nanoTime();
+        SimulationStats stats = run(games, seed, policy);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d games in %.2f s (%.0f games per hour) on %d threads, %d given up on%n", games, seconds,
+                games / seconds * 3600, ForkJoinPool.commonPool().getParallelism() + 1, games - stats.getGames());
+        System.out.println("level  started  cleared  ended  given up  shots/start  red/start  catches/start  "
+                + "fireballs/shot");
+        for (int level = 0; level < Simulation.MAX_LEVEL; level++) {
+            long started = Math.max(1, stats.getLevelsStarted(level));
+            System.out.printf("%5d  %7d  %7d  %5d  %8d  %11.2f  %9.2f  %13.2f  %14.4f%n", level,
+                    stats.getLevelsStarted(level), stats.getLevelsCleared(level), stats.getGamesEnded(level),
+                    stats.getGamesGivenUp(level),
+                    (double) stats.getShots(level) / started, (double) stats.getRedPegsDestroyed(level) / started,
+                    (double) stats.getBucketCatches(level) / started,
+                    (double) stats.getFireballs(level) / Math.max(1, stats.getShots(level)));
+        }
+        System.out.printf("every level cleared in %d games%n", stats.getGamesEnded(Simulation.MAX_LEVEL));
+    }
+
+    /**
+     * plays games number 0 to games - 1 on every core
+     * @return the stats of all the games added together
+     */
+    public static SimulationStats run(long games, long seed, AimPolicy policy) {
+        return ForkJoinPool.commonPool().invoke(new Games(0, games, seed, policy));
+    }
+
+    /**
+     * plays a whole game, shooting as soon as every turn starts
+     * @return the simulation once the game is over, or once it has been given up on
+     */
+    public static Simulation play(long seed, AimPolicy policy) {
+        Simulation simulation;
+        try {
+            simulation = new Simulation(new World(), new SplittableRandom(seed));
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException("Run the batch simulator from a directory with the game's res folder", e);
+        }
+        // the policy gets a random source of its own, so the game itself plays out as it would in ShadowBounce
+        SplittableRandom aimRandom = new SplittableRandom(~seed);
+        for (int update = 0; update < MAX_UPDATES && !simulation.isGameOver(); update++) {
+            if (simulation.isTurnOver()) {
+                Point target = policy.aim(simulation, aimRandom);
+                simulation.update(true, target.x, target.y);
+            } else {
+                simulation.update(false, 0, 0);
+            }
+        }
+        if (!simulation.isGameOver()) {
+            simulation.getStats().gameGivenUp(simulation.getCurrentLevel());
+        }
+        return simulation;
+    }
+
+    /**
+     * Plays the games from first (inclusive) to last (exclusive), splitting them in half until there are few enough
+     */
+    private static class Games extends RecursiveTask<SimulationStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final long first;
+        private final long last;
+        private final long seed;
+        private final AimPolicy policy;
+
+        Games(long first, long last, long seed, AimPolicy policy) {
+            this.first = first;
+            this.last = last;
+            this.seed = seed;
+            this.policy = policy;
+        }
+
+        @Override
+        protected SimulationStats compute() {
+            if (last - first <= GAMES_PER_TASK) {
+                SimulationStats stats = new SimulationStats();
+                for (long game = first; game < last; game++) {
+                    stats.add(play(seed + game, policy).getStats());
+                }
+                return stats;
+            }
+
+            long middle = (first + last) >>> 1;
+            Games firstHalf = new Games(first, middle, seed, policy);
+            firstHalf.fork();
+            SimulationStats stats = new Games(middle, last, seed, policy).compute();
+            stats.add(firstHalf.join());
+            return stats;
+        }
+    }
+}
@@ -1,5 +1,3 @@
-import java.util.ArrayList;
-
 /**
  * BluePeg is the most basic example of a Peg. I decided to not make Peg a concrete class and make its basic
  * example a blue peg, and decided to make Peg an abstract as well, that BluePeg also extends similar to other
@@ -17,8 +15,8 @@ public class BluePeg extends Peg {
     /**
      * onCollide function that remoes blue pegs upon collision
      */
-    void onCollide(Ball ball, ArrayList<Peg> pegs) {
-        super.onCollide(ball, pegs);
+    void onCollide(Ball ball, PegGrid pegGrid) {
+        super.onCollide(ball, pegGrid);
         setShouldBeRemoved(true);
     }
 }
@@ -1,5 +1,3 @@
-import bagel.Window;
-
 /**
  * The Bucket extends Sprite, It is an object at the bottom of the screen where if a ball exits the screen
  * while in contact with the bucket the player does not lose a shot.
@@ -22,9 +20,10 @@ public class Bucket extends Sprite {
 
     /**
      * if the bucket touches any of the sides, it changes direction
+     * @param world the world the bucket is moving in
      */
-    public void update() {
-        if (getPosition().x < getImage().getWidth()/2 || getPosition().x > Window.getWidth() - getImage().getWidth()/2) {
+    public void update(World world) {
+        if (getX() < getWidth()/2 || getX() > world.getWidth() - getWidth()/2) {
             setDx(-getDx());
         }
         move();
@@ -19,10 +19,10 @@ public class GreenPeg extends Peg implements GreenPegCollidable {
      * also creates two new balls to be added to the ball ArrayList
      */
     @Override
-    public void onGreenPegCollide(Ball ball, ArrayList<Peg> pegs, ArrayList<Ball> newBalls) {
-        super.onCollide(ball, pegs);
+    public void onGreenPegCollide(Ball ball, PegGrid pegGrid, ArrayList<Ball> newBalls) {
+        super.onCollide(ball, pegGrid);
         setShouldBeRemoved(true);
-        newBalls.add(new Ball(getPosition().x, getPosition().y, ball.isFireball(), true));
-        newBalls.add(new Ball(getPosition().x, getPosition().y, ball.isFireball(), false));
+        newBalls.add(new Ball(getX(), getY(), ball.isFireball(), true));
+        newBalls.add(new Ball(getX(), getY(), ball.isFireball(), false));
     }
 }
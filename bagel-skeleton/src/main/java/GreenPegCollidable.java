@@ -8,5 +8,5 @@ import java.util.ArrayList;
 public interface GreenPegCollidable {
     // an interface of how green pegs are supposed to act upon being struck
 
-    void onGreenPegCollide(Ball ball, ArrayList<Peg> pegs, ArrayList<Ball> balls);
+    void onGreenPegCollide(Ball ball, PegGrid pegGrid, ArrayList<Ball> balls);
 }
@@ -1,5 +1,3 @@
-import java.util.ArrayList;
-
 /**
  * GreyPeg is a concrete object that extends the abstract class Peg.
  * GreyPegs cannot be destroyed when a ball collides with them.
@@ -16,11 +14,11 @@ public class GreyPeg extends Peg {
     /**
      * onCollide method found in Pegs abstract class that implements various behaviours on collision with a ball
      * @param ball the ball that has collided with this peg
-     * @param pegs the list of pegs needed if the ball is a fireball
+     * @param pegGrid the grid of pegs needed if the ball is a fireball
      */
     @Override
-    void onCollide(Ball ball, ArrayList<Peg> pegs) {
-        super.onCollide(ball, pegs);
+    void onCollide(Ball ball, PegGrid pegGrid) {
+        super.onCollide(ball, pegGrid);
     }
 
     /**
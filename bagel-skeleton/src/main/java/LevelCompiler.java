@@ -0,0 +1,24 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * LevelCompiler compiles the csv file of every level into a compiled level file next to it (res/N.csv into res/N.lvl),
+ * which the game loads instead of the csv file. It should be run again whenever a csv file is changed, since the game
+ * reads the csv file instead of a compiled level that is out of date with it.
+ *
+ * Usage: LevelCompiler [directory...], the directories default to res
+ */
+public class LevelCompiler {
+    public static void main(String[] args) throws IOException {
+        String[] directories = args.length > 0 ? args : new String[] {"res"};
+        for (String directory : directories) {
+            for (int level = 0; level < Simulation.MAX_LEVEL; level++) {
+                File csvFile = new File(directory, level + ".csv");
+                File compiledFile = new File(directory, level + ".lvl");
+                LevelFile.compile(csvFile, Paths.get(compiledFile.getPath()));
+                System.out.println("Compiled " + csvFile + " into " + compiledFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * LevelFile reads the pegs of a level. Levels are written as csv files (res/N.csv), and the LevelCompiler turns them
+ * into compiled level files (res/N.lvl) that can be read without parsing any text. A compiled level file is a header
+ * followed by one record per peg:
+ *
+ * header: magic number (int), version (short), unused (short), number of pegs (int), size of the csv file (long),
+ *         CRC-32 of the csv file (int)
+ * record: colour (byte, ordinal of Peg.Colour), shape (byte, ordinal of Peg.Shape), unused (short), x (float), y (float)
+ *
+ * All numbers are big-endian. A compiled level is loaded by memory mapping the file and reading the records straight
+ * out of it. If there is no compiled level, or it is not a valid one, or the csv file has changed since the level was
+ * compiled (its size or CRC-32 is not the one in the header), the csv file is read instead.
+ *
+ * Each level is only read once, the pegs read are kept and shared by every simulation that loads the level afterwards,
+ * so running many games at once does not read the same files over and over.
+ */
+public class LevelFile {
+    public static final int MAGIC = 0x5045474C; // "PEGL"
+    public static final short VERSION = 2;
+    private static final int HEADER_SIZE = 24;
+    private static final int RECORD_SIZE = 12;
+    private static final String DIRECTORY = "./res/";
+    private static final Peg.Colour[] COLOURS = Peg.Colour.values();
+    private static final Peg.Shape[] SHAPES = Peg.Shape.values();
+
+    // the pegs of every level read so far
+    private static final Map<Integer, LevelPegs> levels = new ConcurrentHashMap<>();
+
+    /**
+     * Receives each peg read from a level file
+     */
+    interface PegVisitor {
+        void visit(Peg.Colour colour, Peg.Shape shape, double x, double y);
+    }
+
+    /**
+     * adds the blue and grey pegs of a level to the store, from the compiled level if there is a valid one that is up
+     * to date with the csv file, otherwise from the csv file
+     * @param level the number of the level
+     * @param pegs the store the pegs are added to
+     * @throws FileNotFoundException if there is neither a compiled level nor a csv file for the level
+     */
+    public static void load(int level, PegStore pegs) throws FileNotFoundException {
+        LevelPegs levelPegs = levels.get(level);
+        if (levelPegs == null) {
+            // two threads may both read a level that is not kept yet, which does no harm
+            levelPegs = new LevelPegs();
+            Path compiled = Paths.get(DIRECTORY + level + ".lvl");
+            File csvFile = new File(DIRECTORY + level + ".csv");
+            if (!Files.exists(compiled) || !isUpToDate(compiled, csvFile) || !readCompiled(compiled, levelPegs)) {
+                levelPegs = new LevelPegs();
+                readCsv(csvFile, levelPegs);
+            }
+            levels.putIfAbsent(level, levelPegs);
+        }
+
+        levelPegs.visitAll((colour, shape, x, y) -> {
+            if (colour == Peg.Colour.BLUE) {
+                pegs.add(new BluePeg(shape, x, y));
+            } else if (colour == Peg.Colour.GREY) {
+                pegs.add(new GreyPeg(shape, x, y));
+            }
+        });
+    }
+
+    /**
+     * reads the pegs of a level csv file. Each line is the type of a peg (such as "grey_horizontal_peg"), followed by
+     * its x and y coordinates. Since the types never say if the peg is blue or if it is a normal (circular) peg, those
+     * are used when no other colour or shape is found in the type
+     * @throws FileNotFoundException if the file does not exist
+     */
+    public static void readCsv(File file, PegVisitor visitor) throws FileNotFoundException {
+        try (Scanner scanner = new Scanner(file)) {
+            scanner.useDelimiter(",|\\n");
+            while (scanner.hasNext()) {
+                String type = scanner.next();
+
+                // Split type to colour and shape, this helps figure out if a grey or peg should be created
+                // and to make sure the correct shaped peg is created
+                Peg.Colour colour = Peg.Colour.BLUE;
+                for (Peg.Colour enumColour : COLOURS) {
+                    if (type.contains(enumColour.toString().toLowerCase())) {
+                        colour = enumColour;
+                        break;
+                    }
+                }
+
+                Peg.Shape shape = Peg.Shape.CIRCULAR;
+                for (Peg.Shape enumShape : SHAPES) {
+                    if (type.contains(enumShape.toString().toLowerCase())) {
+                        shape = enumShape;
+                        break;
+                    }
+                }
+
+                // x and y are the coordinates of the peg that is being read from the csv file
+                double x = scanner.nextDouble();
+                double y = scanner.nextDouble();
+                visitor.visit(colour, shape, x, y);
+            }
+        }
+    }
+
+    /**
+     * reads the pegs of a compiled level file by memory mapping it. Nothing is read unless the whole file is valid
+     * @return false if the file could not be read or is not a valid compiled level of this version
+     */
+    public static boolean readCompiled(Path file, PegVisitor visitor) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            System.err.println("Could not read " + file + ": " + e.getMessage());
+            return false;
+        }
+
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION
+                || buffer.limit() != HEADER_SIZE + (long) buffer.getInt(8) * RECORD_SIZE) {
+            System.err.println(file + " is not a compiled level of version " + VERSION);
+            return false;
+        }
+        int numPegs = buffer.getInt(8);
+        for (int i = 0; i < numPegs; i++) {
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            if (buffer.get(record) < 0 || buffer.get(record) >= COLOURS.length
+                    || buffer.get(record + 1) < 0 || buffer.get(record + 1) >= SHAPES.length) {
+                System.err.println(file + " has a peg of an unknown colour or shape");
+                return false;
+            }
+        }
+
+        for (int i = 0; i < numPegs; i++) {
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            visitor.visit(COLOURS[buffer.get(record)], SHAPES[buffer.get(record + 1)],
+                    buffer.getFloat(record + 4), buffer.getFloat(record + 8));
+        }
+        return true;
+    }
+
+    /**
+     * checks that a compiled level was compiled from the csv file as it is now, by comparing the size and CRC-32 of
+     * the csv file with the ones in the compiled level's header. A compiled level with no csv file is up to date
+     * @return false if the csv file has changed, or the header could not be read
+     */
+    public static boolean isUpToDate(Path compiledFile, File csvFile) {
+        if (!csvFile.exists()) {
+            return true;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(compiledFile))) {
+            // skip to the size of the csv file; readCompiled checks the rest of the header
+            in.readInt();
+            in.readShort();
+            in.readShort();
+            in.readInt();
+            long csvSize = in.readLong();
+            int csvChecksum = in.readInt();
+            if (csvSize == csvFile.length() && csvChecksum == checksum(csvFile)) {
+                return true;
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read " + compiledFile + ": " + e.getMessage());
+            return false;
+        }
+        System.err.println(compiledFile + " is out of date with " + csvFile
+                + ", reading the csv file instead (run LevelCompiler to recompile it)");
+        return false;
+    }
+
+    /**
+     * calculates the CRC-32 of a file's contents
+     */
+    private static int checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(file.toPath()));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * compiles a level csv file into a compiled level file, recording the size and CRC-32 of the csv file
+     * @throws IOException if the csv file can not be read or the compiled file can not be written
+     * @throws IllegalArgumentException if a coordinate in the csv file can not be stored exactly as a float
+     */
+    public static void compile(File csvFile, Path compiledFile) throws IOException {
+        // read every peg first, so the number of pegs can be written in the header
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream recordData = new DataOutputStream(records);
+        readCsv(csvFile, (colour, shape, x, y) -> {
+            if ((float) x != x || (float) y != y) {
+                throw new IllegalArgumentException(csvFile + ": the peg at (" + x + ", " + y
+                        + ") can not be stored exactly in a compiled level");
+            }
+            try {
+                recordData.writeByte(colour.ordinal());
+                recordData.writeByte(shape.ordinal());
+                recordData.writeShort(0);
+                recordData.writeFloat((float) x);
+                recordData.writeFloat((float) y);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        try (OutputStream file = Files.newOutputStream(compiledFile);
+             DataOutputStream out = new DataOutputStream(file)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeInt(records.size() / RECORD_SIZE);
+            out.writeLong(csvFile.length());
+            out.writeInt(checksum(csvFile));
+            records.writeTo(out);
+        }
+    }
+
+    /**
+     * The pegs of a level as they were read from its file
+     */
+    private static class LevelPegs implements PegVisitor {
+        private Peg.Colour[] colours = new Peg.Colour[64];
+        private Peg.Shape[] shapes = new Peg.Shape[64];
+        private double[] xs = new double[64];
+        private double[] ys = new double[64];
+        private int size = 0;
+
+        @Override
+        public void visit(Peg.Colour colour, Peg.Shape shape, double x, double y) {
+            if (size == colours.length) {
+                colours = Arrays.copyOf(colours, size * 2);
+                shapes = Arrays.copyOf(shapes, size * 2);
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            colours[size] = colour;
+            shapes[size] = shape;
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+
+        void visitAll(PegVisitor visitor) {
+            for (int i = 0; i < size; i++) {
+                visitor.visit(colours[i], shapes[i], xs[i], ys[i]);
+            }
+        }
+    }
+}
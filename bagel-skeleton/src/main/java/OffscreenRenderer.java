@@ -0,0 +1,118 @@
+import bagel.AbstractGame;
+import bagel.Input;
+import bagel.InputReplay;
+import bagel.SoftwareBackend;
+import bagel.Window;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * OffscreenRenderer draws the game without a screen or a GPU, using bagel's SoftwareBackend, so that boards and
+ * recorded games can be turned into images on machines with no display.
+ * "thumbnails" writes a PNG of the starting board of every level (res/0.csv, res/1.csv and so on) to OUT_DIR/N.png,
+ * at THUMBNAIL_SCALE times the size of the window unless a scale is given.
+ * "video" plays a game recorded with "ShadowBounce --record FILE" back, one update per frame, and appends every frame
+ * to OUT_FILE as raw RGBA, which ffmpeg can encode with "-f rawvideo -pix_fmt rgba -s WIDTHxHEIGHT -r 60".
+ *
+ * Usage: OffscreenRenderer thumbnails OUT_DIR [SCALE], or OffscreenRenderer video INPUT_LOG OUT_FILE [SCALE]
+ */
+public class OffscreenRenderer extends AbstractGame {
+    private static final String LEVEL_DIRECTORY = "res";
+    private static final double THUMBNAIL_SCALE = 0.25;
+    // the red pegs of a board are chosen at random, so every thumbnail is drawn with the same seed
+    private static final long THUMBNAIL_SEED = 0;
+
+    private final SimulationRenderer renderer = new SimulationRenderer();
+    // the boards drawn one per frame, or null when playing a recorded game back
+    private final List<Simulation> boards;
+    private final InputReplay replay;
+    private Simulation simulation;
+    private int frame = 0;
+
+    /**
+     * constructor for drawing the starting board of each of the levels, one per frame
+     */
+    private OffscreenRenderer(int numLevels, SoftwareBackend backend) throws FileNotFoundException {
+        super((int) World.DEFAULT_WIDTH, (int) World.DEFAULT_HEIGHT, "OffscreenRenderer", backend);
+        boards = new ArrayList<>();
+        for (int level = 0; level < numLevels; level++) {
+            boards.add(new Simulation(new World(), level, new SplittableRandom(THUMBNAIL_SEED)));
+        }
+        replay = null;
+    }
+
+    /**
+     * constructor for drawing a recorded game, started with its recorded seed and window size
+     */
+    private OffscreenRenderer(InputReplay replay, SoftwareBackend backend) throws FileNotFoundException {
+        super(replay.getWidth(), replay.getHeight(), "OffscreenRenderer", backend);
+        boards = null;
+        this.replay = replay;
+        simulation = new Simulation(new World(replay.getWidth(), replay.getHeight()),
+                new SplittableRandom(replay.getSeed()));
+    }
+
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        SoftwareBackend backend;
+        if (args.length >= 2 && args[0].equals("thumbnails")) {
+            double scale = args.length > 2 ? Double.parseDouble(args[2]) : THUMBNAIL_SCALE;
+            int numLevels = countLevels();
+            new File(args[1]).mkdirs();
+            // frame N is the board of level N
+            backend = new SoftwareBackend(scale, numLevels).setPngOutput(new File(args[1], "%d.png").getPath());
+            new OffscreenRenderer(numLevels, backend).run();
+        } else if (args.length >= 3 && args[0].equals("video")) {
+            double scale = args.length > 3 ? Double.parseDouble(args[3]) : 1;
+            try (InputReplay replay = new InputReplay(args[1]);
+                 OutputStream out = new BufferedOutputStream(new FileOutputStream(args[2]))) {
+                backend = new SoftwareBackend(scale, 0).setRawOutput(out);
+                new OffscreenRenderer(replay, backend).run();
+            }
+        } else {
+            System.err.println("Usage: OffscreenRenderer thumbnails OUT_DIR [SCALE], "
+                    + "or OffscreenRenderer video INPUT_LOG OUT_FILE [SCALE]");
+            System.exit(1);
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d frames of %dx%d in %.2f s (%.1f frames per second)%n", backend.getNumFrames(),
+                backend.getFrameWidth(), backend.getFrameHeight(), seconds, backend.getNumFrames() / seconds);
+    }
+
+    /**
+     * counts the levels that can be drawn, which are numbered from 0 up to the first one with no csv file
+     */
+    private static int countLevels() {
+        int numLevels = 0;
+        while (numLevels < Simulation.MAX_LEVEL && new File(LEVEL_DIRECTORY, numLevels + ".csv").exists()) {
+            numLevels++;
+        }
+        return numLevels;
+    }
+
+    @Override
+    protected void update(Input input) {
+        if (boards != null) {
+            simulation = boards.get(frame++);
+        } else if (simulation.isGameOver() || !replay.next()) {
+            // the last frame is drawn again as the window closes
+            Window.close();
+        } else {
+            simulation.update(replay.getInput());
+        }
+    }
+
+    @Override
+    protected void render(double alpha) {
+        renderer.render(simulation, alpha);
+    }
+}
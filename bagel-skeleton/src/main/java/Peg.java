@@ -1,10 +1,5 @@
-import bagel.util.Point;
+import bagel.util.Rectangle;
 import bagel.util.Side;
-import bagel.util.Vector2;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Peg is an abstract class that extends Sprite. Grey, Blue, Green and Red pegs all extend the Peg class
@@ -34,6 +29,8 @@ public abstract class Peg extends Sprite  {
 
     private Colour colour;
     private Shape shape;
+    // the slot of the peg in the PegStore it was added to
+    private int slot = -1;
 
     /**
      * Getter function for colour
@@ -49,66 +46,120 @@ public abstract class Peg extends Sprite  {
         return shape;
     }
 
+    /**
+     * Getter for the slot of the peg in its PegStore
+     */
+    int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Setter for the slot of the peg, only used by PegStore
+     */
+    void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     /**
      * constructor of pegs, takes in as arguments the colour, shape and position of the peg and formats the information
      * into what is going to be used as the image path by the constructors of realized peg classes
      */
     public Peg(Colour colour, Shape shape, double x, double y) {
-        super(String.format("./res/%s%speg.png", colour == Colour.BLUE ? "" : colour.toString().toLowerCase() + "-", shape == Shape.CIRCULAR ? "" : shape.toString().toLowerCase() + "-"), x, y);
+        super(getImagePath(colour, shape), x, y);
         this.colour = colour;
         this.shape = shape;
     }
 
+    /**
+     * formats the colour and shape of a peg into the path of its image
+     */
+    static String getImagePath(Colour colour, Shape shape) {
+        return String.format("./res/%s%speg.png", colour == Colour.BLUE ? "" : colour.toString().toLowerCase() + "-", shape == Shape.CIRCULAR ? "" : shape.toString().toLowerCase() + "-");
+    }
+
     /**
      * On collision, the side of the peg where the ball has struck is calculated so that it can bounce off
      * of other pegs. If the ball is a fireball, this also destroys pegs that are in the blast radius
+     * The side is found using only doubles, since this is called for every collision nothing is created here
+     * @param ball the ball that has collided with this peg
+     * @param pegGrid the grid of pegs on the board, needed if the ball is a fireball
      */
-    void onCollide(Ball ball, ArrayList<Peg> pegs) {
-
-        // find the corners of the ball's boundingbox
-        Point bottomRight = ball.getImage().getBoundingBoxAt(ball.getPosition()).bottomRight();
-        Point bottomLeft = ball.getImage().getBoundingBoxAt(ball.getPosition()).bottomLeft();
-        Point topRight = ball.getImage().getBoundingBoxAt(ball.getPosition()).topRight();
-        Point topLeft = ball.getImage().getBoundingBoxAt(ball.getPosition()).topLeft();
-        Vector2 velocity = new Vector2(ball.getDx(), ball.getDy());
-
-        ArrayList<Point> corners = new ArrayList<>();
-        corners.add(bottomRight);
-        corners.add(bottomLeft);
-        corners.add(topLeft);
-        corners.add(topRight);
-
-        List<Point> intersectingPoints = corners
-                .stream()
-                .filter(corner -> getImage().getBoundingBoxAt(getPosition()).intersects(corner))
-                .collect(Collectors.toList());
-
-        double averageX = intersectingPoints.stream().mapToDouble(o -> o.x).sum() / intersectingPoints.size();
-        double averageY = intersectingPoints.stream().mapToDouble(o -> o.y).sum() / intersectingPoints.size();
+    void onCollide(Ball ball, PegGrid pegGrid) {
+
+        // find the edges of the ball's bounding box and the peg's bounding box
+        double ballLeft = ball.getLeft();
+        double ballTop = ball.getTop();
+        double ballRight = ball.getRight();
+        double ballBottom = ball.getBottom();
+        double left = getLeft();
+        double top = getTop();
+
+        // find which corners of the ball's bounding box intersect with the target peg,
+        // in the order bottom right, bottom left, top left, top right
+        int intersectingCorners = 0;
+        if (containsPoint(left, top, ballRight, ballBottom)) {
+            intersectingCorners |= 1;
+        }
+        if (containsPoint(left, top, ballLeft, ballBottom)) {
+            intersectingCorners |= 2;
+        }
+        if (containsPoint(left, top, ballLeft, ballTop)) {
+            intersectingCorners |= 4;
+        }
+        if (containsPoint(left, top, ballRight, ballTop)) {
+            intersectingCorners |= 8;
+        }
+        int numIntersecting = Integer.bitCount(intersectingCorners);
 
         // find the mid point of the corners that happened to intersect with the target peg
-        Point midPoint = new Point(averageX, averageY);
+        double averageX = sumCorners(intersectingCorners, ballRight, ballLeft, ballLeft, ballRight) / numIntersecting;
+        double averageY = sumCorners(intersectingCorners, ballBottom, ballBottom, ballTop, ballTop) / numIntersecting;
 
         // find the side that is estimated to be the side the ball struck
-        Side hitSide = getImage().getBoundingBoxAt(getPosition()).intersectedAt(midPoint, velocity);
+        Side hitSide = Rectangle.intersectedAt(left, top, getWidth(), getHeight(), averageX, averageY, ball.getDx(), ball.getDy());
 
         // depending on the side, change the velocity of the ball to give it a bouncing effect
-        if (hitSide == Side.BOTTOM || hitSide == Side.TOP) {
-            ball.setDy(-ball.getDy());
-        } else if (hitSide == Side.RIGHT || hitSide == Side.LEFT) {
-            ball.setDx(-ball.getDx());
-        } else {
-            ball.setDy(-ball.getDy());
-            ball.setDx(-ball.getDx());
-        }
+        ball.bounceOff(hitSide);
 
-        // Fireball
+        // Fireball, only the pegs in the cells of the grid around this peg can be in the blast radius
         if (ball.isFireball()) {
-            for (Peg peg : pegs) {
-                if (Math.hypot(getPosition().x - peg.getPosition().x, getPosition().y - peg.getPosition().y) <= BLAST_RADIUS) {
-                    peg.setShouldBeRemoved(true);
-                }
+            pegGrid.removeWithin(getX(), getY(), BLAST_RADIUS);
+        }
+    }
+
+    /**
+     * checks if the point (x, y) is inside (or on the edge of) this peg's bounding box, which has its top left
+     * corner at (left, top)
+     */
+    private boolean containsPoint(double left, double top, double x, double y) {
+        return x >= left && x <= left + getWidth()
+                && y >= top && y <= top + getHeight();
+    }
+
+    /**
+     * adds up the values of the corners whose bit is set in intersectingCorners, in the order bottom right, bottom
+     * left, top left, top right
+     */
+    private static double sumCorners(int intersectingCorners, double bottomRight, double bottomLeft,
+                                     double topLeft, double topRight) {
+        // the corners used to be averaged with DoubleStream.sum(), which uses compensated (Kahan) summation, so the
+        // same summation is done here to give bit-for-bit the same average and therefore the same bounces
+        double sum = 0;
+        // the low-order bits lost from sum so far, taken off the next value added
+        double lostBits = 0;
+        // a plain sum, only used if the compensated sum overflows
+        double plainSum = 0;
+        for (int corner = 0; corner < 4; corner++) {
+            if ((intersectingCorners & (1 << corner)) != 0) {
+                double value = corner == 0 ? bottomRight : corner == 1 ? bottomLeft : corner == 2 ? topLeft : topRight;
+                double correctedValue = value - lostBits;
+                double newSum = sum + correctedValue;
+                lostBits = (newSum - sum) - correctedValue;
+                sum = newSum;
+                plainSum += value;
             }
         }
+        double result = sum - lostBits;
+        return Double.isNaN(result) && Double.isInfinite(plainSum) ? plainSum : result;
     }
 }
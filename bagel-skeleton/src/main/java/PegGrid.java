@@ -0,0 +1,165 @@
+import bagel.util.Rectangle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PegGrid splits the world into square cells of the same size and remembers which pegs are in each cell, so that
+ * only the pegs close to a ball have to be checked for collisions instead of every peg on the board.
+ * A peg is put into every cell its bounding box touches. Pegs that are outside of the world are put into the
+ * closest cells on the edge of the grid.
+ */
+public class PegGrid {
+    // a little bigger than the largest peg so that a peg never spans more than 4 cells
+    private static final double CELL_SIZE = 64;
+    // far more than the few ulps by which a squared distance and hypot can disagree
+    private static final double BOUNDARY_TOLERANCE = 1e-9;
+
+    private final int columns;
+    private final int rows;
+    private final ArrayList<ArrayList<Peg>> cells = new ArrayList<>();
+    private final ArrayList<Peg> pegsWithin = new ArrayList<>();
+
+    /**
+     * constructor for a grid that covers the given world
+     */
+    public PegGrid(World world) {
+        columns = Math.max(1, (int) Math.ceil(world.getWidth() / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil(world.getHeight() / CELL_SIZE));
+        for (int i = 0; i < columns * rows; i++) {
+            cells.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * adds a peg to every cell its bounding box touches
+     */
+    public void add(Peg peg) {
+        for (int row = rowOf(peg.getTop()); row <= rowOf(peg.getBottom()); row++) {
+            for (int column = columnOf(peg.getLeft()); column <= columnOf(peg.getRight()); column++) {
+                cells.get(row * columns + column).add(peg);
+            }
+        }
+    }
+
+    /**
+     * removes a peg from every cell it was added to
+     */
+    public void remove(Peg peg) {
+        for (int row = rowOf(peg.getTop()); row <= rowOf(peg.getBottom()); row++) {
+            for (int column = columnOf(peg.getLeft()); column <= columnOf(peg.getRight()); column++) {
+                cells.get(row * columns + column).remove(peg);
+            }
+        }
+    }
+
+    /**
+     * removes every peg from the grid
+     */
+    public void clear() {
+        for (ArrayList<Peg> cell : cells) {
+            cell.clear();
+        }
+    }
+
+    /**
+     * Adds every peg in the cells that the given box touches to result. These are the only pegs that can intersect
+     * the box, but they are not guaranteed to. Each peg is only added once even if it is in more than one of the cells.
+     * @param box the area to look for pegs in
+     * @param result the list the pegs are added to
+     */
+    public void findNear(Rectangle box, List<Peg> result) {
+        findNear(box.left(), box.top(), box.right(), box.bottom(), result);
+    }
+
+    /**
+     * Adds every peg in the cells that the bounding box of the sprite touches to result, as findNear does for a box
+     */
+    public void findNear(Sprite sprite, List<Peg> result) {
+        findNear(sprite.getLeft(), sprite.getTop(), sprite.getRight(), sprite.getBottom(), result);
+    }
+
+    /**
+     * Adds every peg in the cells that the box with the given edges touches to result, as findNear does for a box
+     */
+    public void findNear(double left, double top, double right, double bottom, List<Peg> result) {
+        int firstRow = rowOf(top);
+        int firstColumn = columnOf(left);
+        for (int row = firstRow; row <= rowOf(bottom); row++) {
+            for (int column = firstColumn; column <= columnOf(right); column++) {
+                for (Peg peg : cells.get(row * columns + column)) {
+                    // a peg spanning several cells is only added from the first of its cells that is being searched
+                    if (row == Math.max(firstRow, rowOf(peg.getTop()))
+                            && column == Math.max(firstColumn, columnOf(peg.getLeft()))) {
+                        result.add(peg);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds every peg whose centre is at most radius away from (x, y) to result, the same pegs as checking
+     * Math.hypot(distanceX, distanceY) <= radius for every peg. Only the cells around (x, y) are searched.
+     * @param x the x coordinate of the centre of the circle to look for pegs in
+     * @param y the y coordinate of the centre of the circle to look for pegs in
+     * @param radius the radius of the circle
+     * @param result the list the pegs are added to
+     */
+    public void findWithin(double x, double y, double radius, List<Peg> result) {
+        int firstRow = rowOf(y - radius);
+        int firstColumn = columnOf(x - radius);
+        for (int row = firstRow; row <= rowOf(y + radius); row++) {
+            for (int column = firstColumn; column <= columnOf(x + radius); column++) {
+                for (Peg peg : cells.get(row * columns + column)) {
+                    if (row == Math.max(firstRow, rowOf(peg.getTop()))
+                            && column == Math.max(firstColumn, columnOf(peg.getLeft()))
+                            && isWithin(x - peg.getX(), y - peg.getY(), radius)) {
+                        result.add(peg);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * checks if Math.hypot(distanceX, distanceY) <= radius. The distances are compared squared, which takes no square
+     * root, except when they are so close to the radius that rounding could make the squares disagree with hypot
+     */
+    private static boolean isWithin(double distanceX, double distanceY, double radius) {
+        double distanceSquared = distanceX * distanceX + distanceY * distanceY;
+        double radiusSquared = radius * radius;
+        if (distanceSquared < radiusSquared * (1 - BOUNDARY_TOLERANCE)) {
+            return true;
+        } else if (distanceSquared > radiusSquared * (1 + BOUNDARY_TOLERANCE)) {
+            return false;
+        }
+        return Math.hypot(distanceX, distanceY) <= radius;
+    }
+
+    /**
+     * Sets every peg whose centre is at most radius away from (x, y) to be removed. Pegs that can not be destroyed
+     * (grey pegs) ignore this as they always do.
+     */
+    public void removeWithin(double x, double y, double radius) {
+        pegsWithin.clear();
+        findWithin(x, y, radius, pegsWithin);
+        for (Peg peg : pegsWithin) {
+            peg.setShouldBeRemoved(true);
+        }
+    }
+
+    /**
+     * finds the column of the grid the given x coordinate is in
+     */
+    private int columnOf(double x) {
+        return Math.min(columns - 1, Math.max(0, (int) Math.floor(x / CELL_SIZE)));
+    }
+
+    /**
+     * finds the row of the grid the given y coordinate is in
+     */
+    private int rowOf(double y) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor(y / CELL_SIZE)));
+    }
+}
@@ -0,0 +1,257 @@
+import bagel.util.Rectangle;
+
+import java.util.Arrays;
+
+/**
+ * PegStore holds every peg on the board. Each peg has a slot in the store, and the position, colour, shape and if the
+ * peg is still alive are kept in arrays indexed by slot, so looking through thousands of pegs only reads arrays of
+ * numbers instead of jumping between peg objects. The store also counts how many alive pegs there are of each colour
+ * and remembers the green peg, so none of these need to be searched for, and it keeps the PegGrid up to date.
+ *
+ * A slot stays in use after its peg is removed (it is marked as not alive), slots are only reused when the store is
+ * cleared at the end of a stage. A peg that changes colour is replaced in the same slot.
+ *
+ * The layout version goes up whenever a peg is added, removed or moved, but not when a peg only changes colour, so
+ * anything worked out from where the pegs are (such as a predicted trajectory) can be kept until it changes.
+ * The dirty area is the smallest rectangle holding every peg added, removed or replaced (colour changes included) since
+ * it was last cleared, so a drawing of the board only needs to redraw that area.
+ */
+public class PegStore {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final Peg.Colour[] COLOURS = Peg.Colour.values();
+    private static final Peg.Shape[] SHAPES = Peg.Shape.values();
+
+    private Peg[] pegs = new Peg[INITIAL_CAPACITY];
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private byte[] colours = new byte[INITIAL_CAPACITY];
+    private byte[] shapes = new byte[INITIAL_CAPACITY];
+    private boolean[] alive = new boolean[INITIAL_CAPACITY];
+    private int numSlots = 0;
+
+    private final int[] colourCounts = new int[COLOURS.length];
+    private int layoutVersion = 0;
+    // the edges of the dirty area, left > right when nothing has changed
+    private double dirtyLeft = Double.POSITIVE_INFINITY;
+    private double dirtyTop = Double.POSITIVE_INFINITY;
+    private double dirtyRight = Double.NEGATIVE_INFINITY;
+    private double dirtyBottom = Double.NEGATIVE_INFINITY;
+    private Peg greenPeg;
+    private final PegGrid grid;
+
+    /**
+     * constructor for an empty store of pegs in the given world
+     */
+    public PegStore(World world) {
+        grid = new PegGrid(world);
+    }
+
+    /**
+     * Getter for the grid holding the alive pegs of the store
+     */
+    public PegGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Getter for the number of slots in use, the slots of removed pegs are included
+     */
+    public int getNumSlots() {
+        return numSlots;
+    }
+
+    /**
+     * Getter for the peg in a slot, or null if the peg in the slot was removed
+     */
+    public Peg get(int slot) {
+        return pegs[slot];
+    }
+
+    /**
+     * Getter for if the peg in a slot is still on the board
+     */
+    public boolean isAlive(int slot) {
+        return alive[slot];
+    }
+
+    /**
+     * Getter for the x coordinate of the peg in a slot
+     */
+    public double getX(int slot) {
+        return xs[slot];
+    }
+
+    /**
+     * Getter for the y coordinate of the peg in a slot
+     */
+    public double getY(int slot) {
+        return ys[slot];
+    }
+
+    /**
+     * Getter for the colour of the peg in a slot
+     */
+    public Peg.Colour getColour(int slot) {
+        return COLOURS[colours[slot]];
+    }
+
+    /**
+     * Getter for the shape of the peg in a slot
+     */
+    public Peg.Shape getShape(int slot) {
+        return SHAPES[shapes[slot]];
+    }
+
+    /**
+     * Getter for the number of alive pegs of a colour
+     */
+    public int count(Peg.Colour colour) {
+        return colourCounts[colour.ordinal()];
+    }
+
+    /**
+     * Getter for the layout version, which changes whenever the place or shape of any peg on the board does
+     */
+    public int getLayoutVersion() {
+        return layoutVersion;
+    }
+
+    /**
+     * Whether any peg has been added, removed or replaced since the dirty area was last cleared
+     */
+    public boolean isDirty() {
+        return dirtyLeft <= dirtyRight;
+    }
+
+    /**
+     * Getter for the smallest rectangle holding every peg added, removed or replaced since the dirty area was last
+     * cleared, or null if there is none
+     */
+    public Rectangle getDirtyArea() {
+        return isDirty() ? new Rectangle(dirtyLeft, dirtyTop, dirtyRight - dirtyLeft, dirtyBottom - dirtyTop) : null;
+    }
+
+    /**
+     * empties the dirty area, once whatever depends on it is up to date
+     */
+    public void clearDirty() {
+        dirtyLeft = Double.POSITIVE_INFINITY;
+        dirtyTop = Double.POSITIVE_INFINITY;
+        dirtyRight = Double.NEGATIVE_INFINITY;
+        dirtyBottom = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Getter for the green peg on the board, or null if there is none
+     */
+    public Peg getGreenPeg() {
+        return greenPeg;
+    }
+
+    /**
+     * adds a peg to a new slot at the end of the store and to the grid
+     */
+    public void add(Peg peg) {
+        if (numSlots == pegs.length) {
+            int capacity = pegs.length * 2;
+            pegs = Arrays.copyOf(pegs, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            colours = Arrays.copyOf(colours, capacity);
+            shapes = Arrays.copyOf(shapes, capacity);
+            alive = Arrays.copyOf(alive, capacity);
+        }
+        int slot = numSlots++;
+        put(slot, peg);
+        xs[slot] = peg.getX();
+        ys[slot] = peg.getY();
+        shapes[slot] = (byte) peg.getShape().ordinal();
+        alive[slot] = true;
+        layoutVersion++;
+        markDirty(peg);
+    }
+
+    /**
+     * puts another peg (usually of a different colour) in the slot of an alive peg, which is removed from the board
+     */
+    public void replace(Peg oldPeg, Peg newPeg) {
+        int slot = oldPeg.getSlot();
+        grid.remove(oldPeg);
+        colourCounts[colours[slot]]--;
+        if (oldPeg == greenPeg) {
+            greenPeg = null;
+        }
+        put(slot, newPeg);
+        markDirty(oldPeg);
+        markDirty(newPeg);
+        if (xs[slot] != newPeg.getX() || ys[slot] != newPeg.getY()
+                || shapes[slot] != newPeg.getShape().ordinal()) {
+            layoutVersion++;
+        }
+        xs[slot] = newPeg.getX();
+        ys[slot] = newPeg.getY();
+        shapes[slot] = (byte) newPeg.getShape().ordinal();
+    }
+
+    /**
+     * removes the alive pegs that should be removed from the board and from the grid
+     */
+    public void removeDestroyed() {
+        for (int slot = 0; slot < numSlots; slot++) {
+            if (alive[slot] && pegs[slot].isShouldBeRemoved()) {
+                Peg peg = pegs[slot];
+                grid.remove(peg);
+                colourCounts[colours[slot]]--;
+                if (peg == greenPeg) {
+                    greenPeg = null;
+                }
+                pegs[slot] = null;
+                alive[slot] = false;
+                layoutVersion++;
+                markDirty(peg);
+            }
+        }
+    }
+
+    /**
+     * removes every peg, after which the slots are reused
+     */
+    public void clear() {
+        for (int slot = 0; slot < numSlots; slot++) {
+            if (alive[slot]) {
+                markDirty(pegs[slot]);
+            }
+        }
+        Arrays.fill(pegs, 0, numSlots, null);
+        Arrays.fill(alive, 0, numSlots, false);
+        Arrays.fill(colourCounts, 0);
+        numSlots = 0;
+        greenPeg = null;
+        grid.clear();
+        layoutVersion++;
+    }
+
+    /**
+     * grows the dirty area to hold the peg
+     */
+    private void markDirty(Peg peg) {
+        dirtyLeft = Math.min(dirtyLeft, peg.getLeft());
+        dirtyTop = Math.min(dirtyTop, peg.getTop());
+        dirtyRight = Math.max(dirtyRight, peg.getRight());
+        dirtyBottom = Math.max(dirtyBottom, peg.getBottom());
+    }
+
+    /**
+     * puts a peg into a slot, counting its colour and adding it to the grid
+     */
+    private void put(int slot, Peg peg) {
+        pegs[slot] = peg;
+        peg.setSlot(slot);
+        colours[slot] = (byte) peg.getColour().ordinal();
+        colourCounts[colours[slot]]++;
+        if (peg.getColour() == Peg.Colour.GREEN) {
+            greenPeg = peg;
+        }
+        grid.add(peg);
+    }
+}
@@ -1,6 +1,6 @@
-import bagel.Window;
-import bagel.util.Vector2;
+import bagel.util.MutableVector2;
 
+import java.util.SplittableRandom;
 
 /**
  * The PowerUp class is responsible for the construction, movement and rendering of power up objects.
@@ -10,51 +10,52 @@ import bagel.util.Vector2;
 public class PowerUp extends Sprite {
 
     //sets the constants for the power up
-    private static final String IMAGE_PATH = "res/powerup.png";
+    public static final String IMAGE_PATH = "res/powerup.png";
     private static final int POWERUP_SPEED = 3;
     private static final int MIN_DIST = 5;
 
     public double targetX;
     public double targetY;
+    // picks the new targets, so a power up moves the same way every time the game is played with the same seed
+    private final SplittableRandom random;
+    // reused every update, so moving the power up creates nothing
+    private final MutableVector2 direction = new MutableVector2();
 
     /**
      * constructor for the power up
+     * @param random the random source new targets are picked with, only used by this power up
      */
-    public PowerUp(double x, double y) {
+    public PowerUp(double x, double y, SplittableRandom random) {
         super(IMAGE_PATH, x, y);
+        this.random = random;
     }
 
     /**
      * the update function constantly moves the power up, if it is ever MIN_DIST pixels far from the target,
      * changes the target coordinate to a new random point
+     * @param world the world the power up is moving in, new targets are picked inside of it
      */
-    public void update() {
-        Vector2 vectorToTarget = new Vector2(targetX, targetY);
-        Vector2 vectorToPowerUp = new Vector2(-getPosition().x, -getPosition().y);
-        Vector2 finalVector = vectorToPowerUp.add(vectorToTarget);
+    public void update(World world) {
+        // the vector from the power up to its target, with magnitude 1
+        direction.set(-getX(), -getY()).add(targetX, targetY).normalise();
 
-        // this is the final vector with magnitude 1 in the direction of the mouse
-        finalVector = finalVector.div(finalVector.length());
+        setDx(direction.x * POWERUP_SPEED);
+        setDy(direction.y * POWERUP_SPEED);
 
-        double dx = finalVector.x * POWERUP_SPEED;
-        double dy = finalVector.y * POWERUP_SPEED;
-
-        setDx(dx);
-        setDy(dy);
-
-        move();
+        move(world);
     }
 
     /**
      * move function for the powerup, checks if current position of the powerup is MIN_DIST far from its target
      * if so changes the target to a new random position
+     * @param world the world the new target is picked in
      */
-    public void move() {
+    public void move(World world) {
         super.move();
-        double distance = Math.hypot(getPosition().x - targetX, getPosition().y - targetY);
+        double distance = Math.hypot(getX() - targetX, getY() - targetY);
         if (distance <= MIN_DIST) {
-            targetX = Math.random() * Window.getWidth();
-            targetY = Math.random() * Window.getHeight();
+            targetX = random.nextDouble() * world.getWidth();
+            targetY = random.nextDouble() * world.getHeight();
         }
     }
 }
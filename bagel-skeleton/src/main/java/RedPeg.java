@@ -1,5 +1,3 @@
-import java.util.ArrayList;
-
 /**
  * RegPeg extends Peg, and is a type of peg that when destroyed, if there is no more red pegs the game
  * moves on to another stage. Otherwise it is very similar to the blue peg.
@@ -16,8 +14,8 @@ public class RedPeg extends Peg {
      * onCollide function for when red pegs are struck and are removed
      */
     @Override
-    void onCollide(Ball ball, ArrayList<Peg> pegs) {
-        super.onCollide(ball, pegs);
+    void onCollide(Ball ball, PegGrid pegGrid) {
+        super.onCollide(ball, pegGrid);
         setShouldBeRemoved(true);
     }
 }
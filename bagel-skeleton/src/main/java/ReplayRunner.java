@@ -0,0 +1,68 @@
+import bagel.InputReplay;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * ReplayRunner plays back games recorded with "ShadowBounce --record FILE" without opening a window, as fast as the
+ * simulation can run, and prints how each game ended. The recorded input is given to a Simulation in the same way as
+ * ShadowBounce.update does, with the recorded seed and window size, so a collection of recorded games can be played
+ * back after changing the rules to check that they all still end the same way.
+ *
+ * Usage: ReplayRunner FILE_OR_DIRECTORY..., every .inputlog file in a directory is played back
+ */
+public class ReplayRunner {
+    private static final String EXTENSION = ".inputlog";
+
+    public static void main(String[] args) throws FileNotFoundException {
+        if (args.length == 0) {
+            System.err.println("Usage: ReplayRunner FILE_OR_DIRECTORY...");
+            System.exit(1);
+        }
+
+        List<File> files = new ArrayList<>();
+        for (String arg : args) {
+            File file = new File(arg);
+            File[] logs = file.listFiles((directory, name) -> name.endsWith(EXTENSION));
+            if (logs != null) {
+                Arrays.sort(logs);
+                files.addAll(Arrays.asList(logs));
+            } else {
+                files.add(file);
+            }
+        }
+
+        long totalUpdates = 0;
+        long start = System.nanoTime();
+        for (File file : files) {
+            long gameStart = System.nanoTime();
+            try (InputReplay replay = new InputReplay(file.getPath())) {
+                Simulation simulation = replay(replay);
+                totalUpdates += replay.getUpdates();
+                System.out.printf("%s: %d updates in %.1f ms, level %d, %d shots left, %s%n", file,
+                        replay.getUpdates(), (System.nanoTime() - gameStart) / 1e6, simulation.getCurrentLevel(),
+                        simulation.getNumShots(), simulation.isGameOver() ? "game over" : "still playing");
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d updates in %.2f s (%.0f updates per second)%n",
+                files.size(), totalUpdates, seconds, totalUpdates / seconds);
+    }
+
+    /**
+     * plays a recorded game back, until the recording ends or the game is over (when the game closes the window)
+     * @return the simulation in the state the recorded game was left in
+     */
+    public static Simulation replay(InputReplay replay) throws FileNotFoundException {
+        Simulation simulation = new Simulation(new World(replay.getWidth(), replay.getHeight()),
+                new SplittableRandom(replay.getSeed()));
+        while (!simulation.isGameOver() && replay.next()) {
+            simulation.update(replay.getInput());
+        }
+        return simulation;
+    }
+}
@@ -0,0 +1,575 @@
+import bagel.Input;
+import bagel.MouseButtons;
+import bagel.util.Rectangle;
+import bagel.util.Vector2;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Simulation holds the state of a game of ShadowBounce and all of its rules. It is where some of the game physics
+ * can be found, most of the game physics are inside the objects that contain them, or the abstract classes extend.
+ * Only collision checking is done in the simulation. It also has methods for clearing and loading stages.
+ *
+ * The simulation never touches the window, the size of the screen comes from the World it is given and the size
+ * of each object comes from SpriteDimensions, so it can be stepped as fast as needed without anything being drawn.
+ * Drawing the game is done by the SimulationRenderer, which reads the state of the simulation.
+ *
+ * When prefetching levels is turned on, the board of the next level is read and prepared on a background thread while
+ * the current level is played, and is swapped in whole once the level is cleared, so changing levels takes no longer
+ * than any other update. It is off by default, so that simulations run in batches don't each start threads.
+ *
+ * Everything random in a game comes from the SplittableRandom the simulation is given, so a game played with the same
+ * seed and the same input plays out exactly the same way. Each level is prepared with a random source of its own,
+ * seeded when the simulation is created, so it does not matter when (or on which thread) a level is prepared.
+ */
+public class Simulation {
+    public static final int MAX_LEVEL = 5;
+    public static final int MAX_SHOTS = 20;
+    private static final int POWERUP_PROBABILITY = 10;
+    private static final int BALL_INIT_SPEED = 10;
+    // a ball that moves further than this along either axis in one update is swept for pegs it passed through. A
+    // slower ball can at most clip the corner of a peg between updates, so it is only checked where it ends up
+    private static final double SWEEP_DISTANCE = 12;
+    // how far into the first peg a swept ball is put, so that it overlaps the peg and collides with it as usual
+    private static final double SWEEP_CONTACT_DEPTH = 0.5;
+
+    // prepares the boards of upcoming levels, shared by every simulation that prefetches levels
+    private static final ExecutorService LEVEL_PREFETCHER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "level-prefetcher");
+        // a level still being prepared should never keep the game running
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // This part initializes most of the items like an ArrayList of balls, the pegs, power ups, lives and stage
+    private final World world;
+    private final SplittableRandom random;
+    // the seed each level is prepared with
+    private final long[] levelSeeds = new long[MAX_LEVEL];
+    private int currentLevel = 0;
+    private ArrayList<Ball> balls = new ArrayList<>();
+    private PegStore pegs;
+    private ArrayList<PowerUp> powerups = new ArrayList<>();
+    private final ArrayList<Peg> nearbyPegs = new ArrayList<>();
+    // the balls made by green pegs during a collision check, added to the balls once it is done
+    private final ArrayList<Ball> newBalls = new ArrayList<>();
+    private int numShots;
+    private boolean newTurn = false;
+    private boolean gameOver = false;
+    private Bucket bucket = new Bucket();
+    private final SimulationStats stats = new SimulationStats();
+    private final TrajectoryPredictor predictor;
+
+    private boolean prefetchLevels = false;
+    // the board of level nextLevelNumber being prepared in the background, or null if none is
+    private Future<PegStore> nextLevel;
+    private int nextLevelNumber;
+
+    /**
+     * The simulation is initialized by calling startStage, which reads the csv file and sets up the board
+     * Also the number of lives the player has is set at this stage
+     * @param world the world the game is played in
+     * @throws FileNotFoundException if the csv file of the first level is not found
+     */
+    public Simulation(World world) throws FileNotFoundException {
+        this(world, 0);
+    }
+
+    /**
+     * The simulation is initialized at the given level instead of the first one
+     * @param world the world the game is played in
+     * @param level the level to start at, from 0 to MAX_LEVEL - 1
+     * @throws FileNotFoundException if the csv file of the level is not found
+     */
+    public Simulation(World world, int level) throws FileNotFoundException {
+        this(world, level, new SplittableRandom());
+    }
+
+    /**
+     * The simulation is initialized with everything random in the game coming from the given random source
+     * @param world the world the game is played in
+     * @param random the random source of the game, for example seeded so that the game can be played again
+     * @throws FileNotFoundException if the csv file of the first level is not found
+     */
+    public Simulation(World world, SplittableRandom random) throws FileNotFoundException {
+        this(world, 0, random);
+    }
+
+    /**
+     * The simulation is initialized at the given level, with everything random in the game coming from the given
+     * random source
+     * @param world the world the game is played in
+     * @param level the level to start at, from 0 to MAX_LEVEL - 1
+     * @param random the random source of the game, for example seeded so that the game can be played again
+     * @throws FileNotFoundException if the csv file of the level is not found
+     */
+    public Simulation(World world, int level, SplittableRandom random) throws FileNotFoundException {
+        this.world = world;
+        this.random = random;
+        predictor = new TrajectoryPredictor(world);
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            levelSeeds[i] = random.nextLong();
+        }
+        pegs = new PegStore(world);
+        currentLevel = level;
+        startStage(currentLevel);
+        numShots = MAX_SHOTS;
+    }
+
+    /**
+     * Turns prefetching the board of the next level on a background thread on or off
+     */
+    public void setPrefetchLevels(boolean prefetchLevels) {
+        this.prefetchLevels = prefetchLevels;
+        if (prefetchLevels && nextLevel == null && !gameOver) {
+            prefetchNextLevel();
+        }
+    }
+
+    /**
+     * Getter for the world the game is played in
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Getter for the balls currently in play
+     */
+    public ArrayList<Ball> getBalls() {
+        return balls;
+    }
+
+    /**
+     * Getter for the pegs on the board
+     */
+    public PegStore getPegs() {
+        return pegs;
+    }
+
+    /**
+     * Getter for the power ups on the board
+     */
+    public ArrayList<PowerUp> getPowerUps() {
+        return powerups;
+    }
+
+    /**
+     * Getter for the bucket
+     */
+    public Bucket getBucket() {
+        return bucket;
+    }
+
+    /**
+     * Getter for the number of shots the player has left
+     */
+    public int getNumShots() {
+        return numShots;
+    }
+
+    /**
+     * Getter for the level currently being played, starting at 0
+     */
+    public int getCurrentLevel() {
+        return currentLevel;
+    }
+
+    /**
+     * Getter for if the game is over, either because the player ran out of shots or every level was cleared
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Getter for if every ball has left the screen, in which case the turn is over and the next update shoots a ball
+     * if the player wants to
+     */
+    public boolean isTurnOver() {
+        for (Ball ball : balls) {
+            if (ball.getY() <= world.getHeight()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Getter for the stats of the game so far
+     */
+    public SimulationStats getStats() {
+        return stats;
+    }
+
+    /**
+     * ends the game, on the level currently being played
+     */
+    private void endGame() {
+        if (!gameOver) {
+            gameOver = true;
+            stats.gameEnded(currentLevel);
+        }
+    }
+
+    /**
+     * gets the bounding boxes of the balls and compares it with other objects in the game (pegs and power ups),
+     * and uses the intersects function of Sprite to check for a collision. Only the pegs in the cells of
+     * the peg grid around a ball are compared with it
+     * If there is a collision, the onCollide function of the peg class is called (this function is slightly different)
+     * for green pegs and grey pegs. If the collision was with a power up the ball is turned into a fireball
+     * Afterwards the items that should be removed (blue, red and green pegs, and power ups) are removed.
+     * If the peg was a green one, new balls are added to the balls ArrayList
+     * Fast balls are first moved back to where they first touched a peg during the update (see sweepToFirstPeg), so
+     * they can't pass through a peg without colliding with it
+     */
+    private void checkForCollision() {
+        boolean greenPegCollided = false;
+        for (Ball ball : balls) {
+            sweepToFirstPeg(ball, pegs.getGrid(), nearbyPegs);
+            nearbyPegs.clear();
+            pegs.getGrid().findNear(ball, nearbyPegs);
+            for (Peg peg : nearbyPegs) {
+                if (ball.intersects(peg)) {
+                    if (peg.getColour() != Peg.Colour.GREEN) {
+                        peg.onCollide(ball, pegs.getGrid());
+                    } else {
+                        GreenPeg greenPeg = (GreenPeg) peg;
+                        greenPeg.onGreenPegCollide(ball, pegs.getGrid(), newBalls);
+                        greenPegCollided = true;
+                    }
+                }
+            }
+            for (PowerUp powerup : powerups) {
+                if (ball.intersects(powerup)) {
+                    if (!powerup.isShouldBeRemoved()) {
+                        stats.fireball(currentLevel);
+                    }
+                    powerup.setShouldBeRemoved(true);
+                    ball.setFireball(true);
+                }
+            }
+        }
+        // this part checks if a green peg was destroyed not due to a collision but due to an explosion from another peg
+        // if that is the case the green peg still acts as it should
+        if (!greenPegCollided) {
+            if (pegs.getGreenPeg() != null && pegs.getGreenPeg().isShouldBeRemoved()) {
+                for (Ball ball : balls) {
+                    GreenPeg greenpeg = (GreenPeg) pegs.getGreenPeg();
+                    greenpeg.onGreenPegCollide(ball, pegs.getGrid(), newBalls);
+                }
+            }
+        }
+        balls.addAll(newBalls);
+        newBalls.clear();
+        int redPegs = pegs.count(Peg.Colour.RED);
+        pegs.removeDestroyed();
+        stats.redPegsDestroyed(currentLevel, redPegs - pegs.count(Peg.Colour.RED));
+        powerups.removeIf(powerup -> powerup.isShouldBeRemoved());
+    }
+
+    /**
+     * If the ball moved far enough in the last update to have passed through a peg, finds the first peg it touched on
+     * the way from where it was to where it is now, and moves the ball back to just inside that peg. The rest of its
+     * movement is lost, as it bounces off the peg there. Only the pegs in the cells of the grid the ball passed over
+     * are checked, and slow balls (almost all of them) are not swept at all
+     * @param nearbyPegs a list to find the pegs near the ball's path with, which is cleared first
+     */
+    static void sweepToFirstPeg(Ball ball, PegGrid grid, ArrayList<Peg> nearbyPegs) {
+        double startX = ball.getPreviousX();
+        double startY = ball.getPreviousY();
+        double moveX = ball.getX() - startX;
+        double moveY = ball.getY() - startY;
+        if (Math.abs(moveX) <= SWEEP_DISTANCE && Math.abs(moveY) <= SWEEP_DISTANCE) {
+            return;
+        }
+
+        double halfWidth = ball.getWidth() / 2.0;
+        double halfHeight = ball.getHeight() / 2.0;
+        nearbyPegs.clear();
+        grid.findNear(Math.min(startX, startX + moveX) - halfWidth, Math.min(startY, startY + moveY) - halfHeight,
+                Math.max(startX, startX + moveX) + halfWidth, Math.max(startY, startY + moveY) + halfHeight,
+                nearbyPegs);
+        double firstImpact = Double.POSITIVE_INFINITY;
+        for (Peg peg : nearbyPegs) {
+            firstImpact = Math.min(firstImpact, Rectangle.timeOfImpact(startX, startY, moveX, moveY, halfWidth,
+                    halfHeight, peg.getLeft(), peg.getTop(), peg.getWidth(), peg.getHeight()));
+        }
+
+        if (firstImpact <= 1) {
+            double t = Math.min(1, firstImpact + SWEEP_CONTACT_DEPTH / Math.sqrt(moveX * moveX + moveY * moveY));
+            ball.setPosition(startX + moveX * t, startY + moveY * t);
+        }
+    }
+
+    /**
+     * Starts a new stage by first checking if current stage is bigger than MAX_LEVEL, if not the board of the level
+     * is swapped in, either the one prepared in the background or one prepared now by prepareLevel. Then the board of
+     * the level after it starts being prepared if prefetching levels is on
+     *
+     * And finally createPowerUp() is called, which creates a fireball power up with 1 in 10 chance
+     *
+     * @param currentLevel initially 0, can go up to 4
+     * @throws FileNotFoundException if neither a level file nor a csv file with the current levels number is found
+     */
+    private void startStage(int currentLevel) throws FileNotFoundException {
+        if (currentLevel == MAX_LEVEL) {
+            endGame();
+        } else {
+            stats.levelStarted(currentLevel);
+            pegs = takePreparedLevel(currentLevel);
+            if (prefetchLevels) {
+                prefetchNextLevel();
+            }
+
+            // create powerup
+            createPowerUp();
+        }
+    }
+
+    /**
+     * Reads the pegs of a level into a new store, with LevelFile, from the compiled level file if there is one and
+     * otherwise from the csv file
+     *
+     * Once pegs are created 1/5th of the pegs are randomly selected and are removed with a red peg created in their place
+     * After these, the makeGreenPeg() function is called (which creates a green peg at the start of each level as well as
+     * after each complete turn)
+     *
+     * Only the world and the seed of the level are used, so this can be run on the prefetching thread
+     * @throws FileNotFoundException if neither a level file nor a csv file with the levels number is found
+     */
+    private static PegStore prepareLevel(World world, int level, long seed) throws FileNotFoundException {
+        SplittableRandom random = new SplittableRandom(seed);
+        PegStore pegs = new PegStore(world);
+        LevelFile.load(level, pegs);
+        // Create Red Pegs
+        int numRedPegsToAdd = pegs.count(Peg.Colour.BLUE) / 5;
+        while (numRedPegsToAdd > 0) {
+            int randomNum = random.nextInt(0, pegs.getNumSlots());
+            if (pegs.isAlive(randomNum) && pegs.getColour(randomNum) == Peg.Colour.BLUE) {
+                pegs.replace(pegs.get(randomNum), new RedPeg(pegs.getShape(randomNum), pegs.getX(randomNum), pegs.getY(randomNum)));
+                numRedPegsToAdd--;
+            }
+        }
+
+        // create an initial green peg
+        makeGreenPeg(pegs, random);
+        return pegs;
+    }
+
+    /**
+     * starts preparing the board of the level after the current one on the prefetching thread
+     */
+    private void prefetchNextLevel() {
+        nextLevel = null;
+        if (currentLevel + 1 < MAX_LEVEL) {
+            World world = this.world;
+            int level = currentLevel + 1;
+            long seed = levelSeeds[level];
+            nextLevelNumber = level;
+            nextLevel = LEVEL_PREFETCHER.submit(() -> prepareLevel(world, level, seed));
+        }
+    }
+
+    /**
+     * Getter for the board of a level, waiting for it if it is being prepared in the background (which it almost
+     * always has finished by the time the current level is cleared), and otherwise preparing it now
+     * @throws FileNotFoundException if neither a level file nor a csv file with the levels number is found
+     */
+    private PegStore takePreparedLevel(int level) throws FileNotFoundException {
+        Future<PegStore> prepared = nextLevel;
+        nextLevel = null;
+        if (prepared != null && nextLevelNumber == level) {
+            try {
+                return prepared.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof FileNotFoundException) {
+                    throw (FileNotFoundException) e.getCause();
+                }
+                throw new IllegalStateException("Could not prepare level " + level, e.getCause());
+            } catch (InterruptedException e) {
+                // stop waiting and prepare the level here instead
+                Thread.currentThread().interrupt();
+            }
+        }
+        return prepareLevel(world, level, levelSeeds[level]);
+    }
+
+    /**
+     * Selects a random blue peg, removes it and creates a green peg in its place, unless there already is a green peg
+     * on the board. In which case if it is not destroyed its location is changed at the end of the turn
+     * If there are no blue pegs left no green peg is made, otherwise a random blue peg would be searched for forever
+     */
+    private static void makeGreenPeg(PegStore pegs, SplittableRandom random) {
+        // make a random blue peg green
+        if (pegs.count(Peg.Colour.GREEN) < 1 && pegs.count(Peg.Colour.BLUE) > 0) {
+            while (true) {
+                int randomNum = random.nextInt(0, pegs.getNumSlots());
+                if (pegs.isAlive(randomNum) && pegs.getColour(randomNum) == Peg.Colour.BLUE) {
+                    pegs.replace(pegs.get(randomNum), new GreenPeg(pegs.getShape(randomNum), pegs.getX(randomNum), pegs.getY(randomNum)));
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * clears all the pegs from the board and resets the position of the bucket
+     */
+    private void clearStage(){
+        pegs.clear();
+        powerups.clear();
+        bucket.setPosition(Bucket.INIT_X, Bucket.INIT_Y);
+        // the bucket jumps back to the middle, so it should not be drawn sliding there
+        bucket.savePreviousPosition();
+        bucket.setDx(bucket.INIT_SPEED);
+    }
+
+    /**
+     * With 1 in 10 chance, creates a power up in a random position goin in a random position.
+     */
+    private void createPowerUp() {
+        int randomNum = random.nextInt(0, POWERUP_PROBABILITY);
+        if (randomNum == 0) {
+            double powerUpX = random.nextDouble() * world.getWidth();
+            double powerUpY = random.nextDouble() * world.getHeight();
+            PowerUp powerup = new PowerUp(powerUpX, powerUpY, random.split());
+            powerup.targetX = random.nextDouble() * world.getWidth();
+            powerup.targetY = random.nextDouble() * world.getHeight();
+            powerups.add(powerup);
+        }
+    }
+
+    /**
+     * creates a ball at the start point, moving towards the target at the speed every ball is shot at
+     */
+    static Ball shootBall(double targetX, double targetY) {
+        // these two vectors are used to calculate the vector of the balls movement
+        // vectorToBall is a vector from (0,0 to the position of the mouse)
+        // vectorToMouse is a vector from (0,0 to the position of the ball)
+        Vector2 vectorToMouse = new Vector2(targetX, targetY);
+        Vector2 vectorToBall = new Vector2(-Ball.INIT_X, -Ball.INIT_Y);
+        Vector2 vectorBall = vectorToBall.add(vectorToMouse);
+
+        // this is the final vector with magnitude 1 in the direction of the mouse
+        vectorBall = vectorBall.div(vectorBall.length());
+        return new Ball(vectorBall.x * BALL_INIT_SPEED, vectorBall.y * BALL_INIT_SPEED);
+    }
+
+    /**
+     * Predicts the path of a ball shot towards the aim point right now, until it touches a peg, leaves the bottom of
+     * the board or has moved maxSteps times. Nothing in the game is changed. Predictions are kept until the pegs
+     * are moved or removed, so asking for the same prediction every frame is cheap
+     * @param aimX the x coordinate the ball would be shot towards, which is rounded to the nearest of
+     *             TrajectoryPredictor's aim points
+     * @param aimY the y coordinate the ball would be shot towards, rounded the same way
+     * @param maxSteps the most updates to predict
+     */
+    public Trajectory predictTrajectory(double aimX, double aimY, int maxSteps) {
+        return predictor.predict(pegs, aimX, aimY, maxSteps);
+    }
+
+    /**
+     * Performs a single step of the game with the player's input, a ball is shot towards the mouse when the left mouse
+     * button is down
+     */
+    public void update(Input input) {
+        update(input.isDown(MouseButtons.LEFT), input.getMouseX(), input.getMouseY());
+    }
+
+    /**
+     * Performs a single step of the game
+     * @param shoot if the player wants to shoot a ball (the left mouse button is down)
+     * @param targetX the x coordinate the player is aiming at
+     * @param targetY the y coordinate the player is aiming at
+     */
+    public void update(boolean shoot, double targetX, double targetY) {
+        if (gameOver) {
+            return;
+        }
+
+        // remember where everything that moves was, so it can be drawn between this update and the last one
+        for (Ball ball : balls) {
+            ball.savePreviousPosition();
+        }
+        for (PowerUp powerup : powerups) {
+            powerup.savePreviousPosition();
+        }
+        bucket.savePreviousPosition();
+
+        // Check if bucket caught ball
+        for (Ball ball : balls) {
+            if (ball.getY() > world.getHeight() && ball.intersects(bucket)) {
+                numShots++;
+                stats.bucketCatch(currentLevel);
+            }
+        }
+
+        // If all the balls are below the screen this means the turn is over
+        if (isTurnOver()) {
+
+            // clear balls before starting next turn
+            balls.clear();
+
+            // check red pegs, if there are no more red pegs left the game moves on to the next stage
+            if (pegs.count(Peg.Colour.RED) == 0) {
+                stats.levelCleared(currentLevel);
+                clearStage();
+                try {
+                    currentLevel++;
+                    startStage(currentLevel);
+                } catch (FileNotFoundException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            // Check shots, if the player has no shots left, the game is over. This is checked after the red pegs, so a
+            // level cleared with the last shot counts as cleared, and the game ends on the next level
+            if (numShots == 0) {
+                endGame();
+            }
+
+            // every new turn move the green peg, by removing the previous green peg and making a new one,
+            // also call createPowerUp so there is a 1 in 10 chance of a new power up occuring
+            if (newTurn) {
+                if (pegs.count(Peg.Colour.GREEN) == 1) {
+                    Peg greenPeg = pegs.getGreenPeg();
+                    pegs.replace(greenPeg, new BluePeg(greenPeg.getShape(), greenPeg.getX(), greenPeg.getY()));
+                    newTurn = false;
+                }
+                createPowerUp();
+            }
+
+            makeGreenPeg(pegs, random);
+
+
+            // creates a new ball at the start point when the player shoots, unless the last shot was just used up
+            if (shoot && !gameOver) {
+                numShots--;
+                stats.shot(currentLevel);
+                balls.add(shootBall(targetX, targetY));
+                newTurn = true;
+            }
+        }
+
+        // various update functions are called here. Update functions in each class basically make those items move
+        for (Ball ball : balls) {
+            ball.update(world);
+        }
+
+        for (PowerUp powerup : powerups) {
+            powerup.update(world);
+        }
+
+        bucket.update(world);
+
+        // Checks if bounding boxes of ball and pegs or ball and power ups collide and remove them if necessary
+        checkForCollision();
+    }
+}
@@ -0,0 +1,128 @@
+import bagel.Drawing;
+import bagel.Image;
+import bagel.RenderLayer;
+import bagel.util.Colour;
+import bagel.util.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SimulationRenderer draws the state of a Simulation. It is the only part of the game that loads images, so a
+ * simulation can be run without one (and without a window). Every image of the game is packed into a texture atlas
+ * when the renderer is created, so the whole board can be drawn without switching textures. An Image is made the
+ * first time a sprite using it is drawn, and reused afterwards.
+ * Pegs never move, so they are drawn into a RenderLayer that is drawn as one image every frame. Only the dirty area of
+ * the PegStore is redrawn, once something on the board has changed.
+ */
+public class SimulationRenderer {
+    private static final int TRAJECTORY_DOT_SPACING = 4;
+    private static final double TRAJECTORY_DOT_SIZE = 4;
+    private static final Colour TRAJECTORY_COLOUR = new Colour(1, 1, 1, 0.6);
+    // redrawn areas are rounded out to whole pixels, which pegs just outside the area may share
+    private static final double LAYER_PADDING = 1;
+    private static final Comparator<Peg> BY_SLOT = Comparator.comparingInt(Peg::getSlot);
+
+    private final Map<String, Image> images = new HashMap<>();
+    private final RenderLayer pegLayer;
+    private final ArrayList<Peg> dirtyPegs = new ArrayList<>();
+    // the store whose pegs are drawn in the layer
+    private PegStore layerPegs;
+
+    /**
+     * constructor for the renderer, which packs the images of every sprite into an atlas
+     */
+    public SimulationRenderer() {
+        List<String> imagePaths = new ArrayList<>();
+        imagePaths.add(Ball.IMAGE_PATH_NORMAL);
+        imagePaths.add(Ball.IMAGE_PATH_FIREBALL);
+        imagePaths.add(Bucket.IMAGE_PATH);
+        imagePaths.add(PowerUp.IMAGE_PATH);
+        for (Peg.Colour colour : Peg.Colour.values()) {
+            for (Peg.Shape shape : Peg.Shape.values()) {
+                imagePaths.add(Peg.getImagePath(colour, shape));
+            }
+        }
+        Image.packAtlas(imagePaths.toArray(new String[0]));
+        pegLayer = new RenderLayer();
+    }
+
+    /**
+     * draws every ball, peg, power up and the bucket of the simulation. Moving objects are drawn between their
+     * positions before and after the last update of the simulation
+     * @param alpha how far between the previous and current positions to draw moving objects, from 0 to 1
+     */
+    public void render(Simulation simulation, double alpha) {
+        for (Ball ball : simulation.getBalls()) {
+            render(ball, alpha);
+        }
+
+        updatePegLayer(simulation.getPegs());
+        pegLayer.draw();
+        for (PowerUp powerUp : simulation.getPowerUps()) {
+            render(powerUp, alpha);
+        }
+        render(simulation.getBucket(), alpha);
+    }
+
+    /**
+     * draws a predicted trajectory as a dotted line, with a dot every few positions
+     */
+    public void renderTrajectory(Trajectory trajectory) {
+        for (int i = 0; i < trajectory.getNumPoints(); i += TRAJECTORY_DOT_SPACING) {
+            Drawing.drawRectangle(trajectory.getX(i) - TRAJECTORY_DOT_SIZE / 2,
+                    trajectory.getY(i) - TRAJECTORY_DOT_SIZE / 2, TRAJECTORY_DOT_SIZE, TRAJECTORY_DOT_SIZE,
+                    TRAJECTORY_COLOUR);
+        }
+    }
+
+    /**
+     * redraws the pegs that changed since the layer was last drawn, or every peg if the layer holds another store
+     */
+    private void updatePegLayer(PegStore pegs) {
+        if (pegs != layerPegs) {
+            layerPegs = pegs;
+            pegs.clearDirty();
+            pegLayer.redraw(() -> {
+                for (int slot = 0; slot < pegs.getNumSlots(); slot++) {
+                    if (pegs.isAlive(slot)) {
+                        render(pegs.get(slot), 1);
+                    }
+                }
+            });
+        } else if (pegs.isDirty()) {
+            Rectangle area = pegs.getDirtyArea();
+            pegs.clearDirty();
+            double left = area.left() - LAYER_PADDING;
+            double top = area.top() - LAYER_PADDING;
+            double right = area.right() + LAYER_PADDING;
+            double bottom = area.bottom() + LAYER_PADDING;
+            // every peg overlapping the area is drawn again, in the same order as when the whole layer is drawn
+            dirtyPegs.clear();
+            pegs.getGrid().findNear(left, top, right, bottom, dirtyPegs);
+            dirtyPegs.sort(BY_SLOT);
+            pegLayer.redraw(left, top, right - left, bottom - top, () -> {
+                for (Peg peg : dirtyPegs) {
+                    render(peg, 1);
+                }
+            });
+        }
+    }
+
+    /**
+     * draws the image of a sprite centred at its position, interpolated by alpha
+     */
+    private void render(Sprite sprite, double alpha) {
+        getImage(sprite.getImagePath()).draw(sprite.getInterpolatedX(alpha), sprite.getInterpolatedY(alpha));
+    }
+
+    /**
+     * Getter for the image at the given path, loading it if it has not been drawn before
+     */
+    private Image getImage(String imagePath) {
+        return images.computeIfAbsent(imagePath, Image::new);
+    }
+}
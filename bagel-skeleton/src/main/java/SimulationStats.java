@@ -0,0 +1,137 @@
+/**
+ * SimulationStats counts what happens on each level of the games played by a simulation: how often the level was
+ * started and cleared, how many shots were taken on it, how many red pegs were destroyed, how many balls were caught by
+ * the bucket and how many power ups turned a ball into a fireball. Every simulation counts into its own stats, and the
+ * stats of many games can be added together with add.
+ * Every time a level is started it is either cleared, or the game ends on it, or the game is given up on while it is
+ * being played (such as when a batch of games stops one that is taking too long), so that a game given up on does not
+ * lower how often a level looks to be cleared.
+ */
+public class SimulationStats {
+    private long games = 0;
+    // the number of games that ended on each level, the last one is the games where every level was cleared
+    private final long[] gamesEnded = new long[Simulation.MAX_LEVEL + 1];
+    // the number of games given up on before they were over, on each level
+    private final long[] gamesGivenUp = new long[Simulation.MAX_LEVEL];
+    private final long[] levelsStarted = new long[Simulation.MAX_LEVEL];
+    private final long[] levelsCleared = new long[Simulation.MAX_LEVEL];
+    private final long[] shots = new long[Simulation.MAX_LEVEL];
+    private final long[] redPegsDestroyed = new long[Simulation.MAX_LEVEL];
+    private final long[] bucketCatches = new long[Simulation.MAX_LEVEL];
+    private final long[] fireballs = new long[Simulation.MAX_LEVEL];
+
+    void levelStarted(int level) {
+        levelsStarted[level]++;
+    }
+
+    void levelCleared(int level) {
+        levelsCleared[level]++;
+    }
+
+    void shot(int level) {
+        shots[level]++;
+    }
+
+    void redPegsDestroyed(int level, int count) {
+        redPegsDestroyed[level] += count;
+    }
+
+    void bucketCatch(int level) {
+        bucketCatches[level]++;
+    }
+
+    void fireball(int level) {
+        fireballs[level]++;
+    }
+
+    void gameEnded(int level) {
+        games++;
+        gamesEnded[level]++;
+    }
+
+    void gameGivenUp(int level) {
+        gamesGivenUp[level]++;
+    }
+
+    /**
+     * adds the counts of other stats to these ones
+     */
+    public void add(SimulationStats other) {
+        games += other.games;
+        for (int level = 0; level < Simulation.MAX_LEVEL; level++) {
+            levelsStarted[level] += other.levelsStarted[level];
+            levelsCleared[level] += other.levelsCleared[level];
+            gamesGivenUp[level] += other.gamesGivenUp[level];
+            shots[level] += other.shots[level];
+            redPegsDestroyed[level] += other.redPegsDestroyed[level];
+            bucketCatches[level] += other.bucketCatches[level];
+            fireballs[level] += other.fireballs[level];
+        }
+        for (int level = 0; level <= Simulation.MAX_LEVEL; level++) {
+            gamesEnded[level] += other.gamesEnded[level];
+        }
+    }
+
+    /**
+     * Getter for the number of games that are over
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Getter for the number of games that ended on a level, or where every level was cleared if level is MAX_LEVEL
+     */
+    public long getGamesEnded(int level) {
+        return gamesEnded[level];
+    }
+
+    /**
+     * Getter for the number of games given up on while a level was being played, which are not counted as over
+     */
+    public long getGamesGivenUp(int level) {
+        return gamesGivenUp[level];
+    }
+
+    /**
+     * Getter for the number of times a level was started
+     */
+    public long getLevelsStarted(int level) {
+        return levelsStarted[level];
+    }
+
+    /**
+     * Getter for the number of times a level was cleared
+     */
+    public long getLevelsCleared(int level) {
+        return levelsCleared[level];
+    }
+
+    /**
+     * Getter for the number of shots taken on a level
+     */
+    public long getShots(int level) {
+        return shots[level];
+    }
+
+    /**
+     * Getter for the number of red pegs destroyed on a level
+     */
+    public long getRedPegsDestroyed(int level) {
+        return redPegsDestroyed[level];
+    }
+
+    /**
+     * Getter for the number of balls the bucket caught on a level
+     */
+    public long getBucketCatches(int level) {
+        return bucketCatches[level];
+    }
+
+    /**
+     * Getter for the number of balls turned into fireballs on a level
+     */
+    public long getFireballs(int level) {
+        return fireballs[level];
+    }
+}
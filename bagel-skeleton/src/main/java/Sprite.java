@@ -1,16 +1,33 @@
-import bagel.Image;
 import bagel.util.Point;
+import bagel.util.Rectangle;
 
 /**
  * Sprite is an abstract class that all other classes extend. It has the most basic functionality that all
- * other objects share such as moving, rendering, and various getters and setters.
+ * other objects share such as moving, and various getters and setters.
+ * A sprite only knows the path and the size of its image, drawing it is left to the SimulationRenderer, so sprites
+ * can be created and moved around without a window.
+ * The position is kept as plain doubles, so moving a sprite creates nothing; getPosition creates a Point when one is
+ * needed. The edges of the bounding box are worked out whenever the sprite moves or changes image, not every time they are
+ * needed, so collisions can be checked with intersects without creating anything. Pegs never move, so theirs are only
+ * ever worked out once.
  */
 public abstract class Sprite {
-    private Image image;
-    private Point position;
+    private String imagePath;
+    private double width;
+    private double height;
+    private double x;
+    private double y;
+    // the position at the start of the last update, used to draw the object smoothly between updates
+    private double previousX;
+    private double previousY;
     private double dx;
     private double dy;
     private boolean shouldBeRemoved = false;
+    // the edges of the bounding box
+    private double left;
+    private double top;
+    private double right;
+    private double bottom;
 
     /**
      * constructor for the abstract class Sprite
@@ -21,8 +38,11 @@ public abstract class Sprite {
      * @param y the y coordinate of where the object is to be placed
      */
     public Sprite(String imagePath, double x, double y) {
-        image = new Image(imagePath);
-        position = new Point(x, y);
+        this.x = x;
+        this.y = y;
+        previousX = x;
+        previousY = y;
+        setImagePath(imagePath);
     }
 
     /**
@@ -73,17 +93,35 @@ public abstract class Sprite {
     }
 
     /**
-     * Setter for the image of the object
+     * Setter for the image of the object, the width and height of the object are changed to the size of the image
      */
-    public void setImage(Image image) {
-        this.image = image;
+    public void setImagePath(String imagePath) {
+        SpriteDimensions dimensions = SpriteDimensions.of(imagePath);
+        this.imagePath = imagePath;
+        this.width = dimensions.width;
+        this.height = dimensions.height;
+        updateBounds();
     }
 
     /**
-     * Getter for the image of the object
+     * Getter for the path of the image of the object
      */
-    public Image getImage() {
-        return image;
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    /**
+     * Getter for the width of the object, which is the width of its image
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter for the height of the object, which is the height of its image
+     */
+    public double getHeight() {
+        return height;
     }
 
     /**
@@ -91,28 +129,136 @@ public abstract class Sprite {
      * @param pixel an object of the class Point with an x and a y value
      */
     public void setPosition(Point pixel) {
-        position = pixel;
+        setPosition(pixel.x, pixel.y);
     }
 
     /**
-     * Getter for the position of the object given as a Point with an x and a y value
+     * Setter for the position of the object
+     */
+    public void setPosition(double x, double y) {
+        this.x = x;
+        this.y = y;
+        updateBounds();
+    }
+
+    /**
+     * Getter for the position of the object given as a new Point with an x and a y value
      */
     public Point getPosition() {
-        return position;
+        return new Point(x, y);
+    }
+
+    /**
+     * Getter for the x coordinate of the object
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Getter for the y coordinate of the object
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Remembers the current position as the previous position, called at the start of each update of the game
+     */
+    public void savePreviousPosition() {
+        previousX = x;
+        previousY = y;
+    }
+
+    /**
+     * Getter for the x coordinate of the object at the start of the last update
+     */
+    public double getPreviousX() {
+        return previousX;
+    }
+
+    /**
+     * Getter for the y coordinate of the object at the start of the last update
+     */
+    public double getPreviousY() {
+        return previousY;
     }
 
+    /**
+     * Getter for the x coordinate of the object between its previous and current positions
+     * @param alpha how far between the two positions, 0 is the previous position and 1 is the current one
+     */
+    public double getInterpolatedX(double alpha) {
+        return previousX + (x - previousX) * alpha;
+    }
+
+    /**
+     * Getter for the y coordinate of the object between its previous and current positions
+     * @param alpha how far between the two positions, 0 is the previous position and 1 is the current one
+     */
+    public double getInterpolatedY(double alpha) {
+        return previousY + (y - previousY) * alpha;
+    }
+
+    /**
+     * Creates a rectangle the size of the object's image centred at its position
+     */
+    public Rectangle getBoundingBox() {
+        return new Rectangle(left, top, width, height);
+    }
+
+    /**
+     * Getter for the x coordinate of the left edge of the bounding box
+     */
+    public double getLeft() {
+        return left;
+    }
+
+    /**
+     * Getter for the y coordinate of the top edge of the bounding box
+     */
+    public double getTop() {
+        return top;
+    }
+
+    /**
+     * Getter for the x coordinate of the right edge of the bounding box
+     */
+    public double getRight() {
+        return right;
+    }
+
+    /**
+     * Getter for the y coordinate of the bottom edge of the bounding box
+     */
+    public double getBottom() {
+        return bottom;
+    }
+
+    /**
+     * checks if the bounding boxes of this object and another one overlap, the same way as Rectangle.intersects
+     * (boxes that only touch do not overlap)
+     */
+    public boolean intersects(Sprite other) {
+        return left < other.right && right > other.left && top < other.bottom && bottom > other.top;
+    }
 
     /**
-     * render function common to all objects that extend the Sprite class, draws the object at the given position
+     * works out the edges of the bounding box from the position and the size of the image, in the same way as the
+     * Rectangle of the bounding box does
      */
-    public void render() {
-        image.draw(position.x, position.y);
+    private void updateBounds() {
+        left = x - width / 2.0;
+        top = y - height / 2.0;
+        right = left + width;
+        bottom = top + height;
     }
 
     /**
      * somewhat modified in some of the objects that inherit from this class, but commonly makes the object move
+     * @param world the world the object is moving in
      */
-    public void update() {
+    public void update(World world) {
         move();
     }
 
@@ -120,8 +266,8 @@ public abstract class Sprite {
      * moves the object depending on its Dx and Dy values
      */
     public void move() {
-        double newX = position.x + dx;
-        double newY = position.y + dy;
-        position = new Point(newX, newY);
+        x += dx;
+        y += dy;
+        updateBounds();
     }
 }
@@ -0,0 +1,64 @@
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SpriteDimensions keeps the width and height of every sprite image, which is all the game physics need to know
+ * about an image. The size is read from the header of the png file the first time it is needed (no texture is
+ * loaded), or it can be registered beforehand if the image files are not available.
+ */
+public final class SpriteDimensions {
+    // every png file starts with these 8 bytes, followed by the IHDR chunk that holds the width and height
+    private static final long PNG_SIGNATURE = 0x89504E470D0A1A0AL;
+    private static final int IHDR_TYPE = 0x49484452;
+
+    private static final Map<String, SpriteDimensions> dimensions = new ConcurrentHashMap<>();
+
+    public final double width;
+    public final double height;
+
+    private SpriteDimensions(double width, double height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Registers the size of an image so that it is never read from disk
+     * @param imagePath the path the sprite uses for its image
+     * @param width the width of the image in pixels
+     * @param height the height of the image in pixels
+     */
+    public static void register(String imagePath, double width, double height) {
+        dimensions.put(imagePath, new SpriteDimensions(width, height));
+    }
+
+    /**
+     * Getter for the size of an image, reading it from the png header if it has not been registered
+     * @param imagePath the path the sprite uses for its image
+     */
+    public static SpriteDimensions of(String imagePath) {
+        return dimensions.computeIfAbsent(imagePath, SpriteDimensions::readPngHeader);
+    }
+
+    /**
+     * reads the width and height out of the IHDR chunk of a png file without decoding the image
+     */
+    private static SpriteDimensions readPngHeader(String imagePath) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(imagePath))) {
+            long signature = in.readLong();
+            in.readInt(); // length of the IHDR chunk
+            int chunkType = in.readInt();
+            if (signature != PNG_SIGNATURE || chunkType != IHDR_TYPE) {
+                throw new IllegalArgumentException(imagePath + " is not a png file");
+            }
+            int width = in.readInt();
+            int height = in.readInt();
+            return new SpriteDimensions(width, height);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the size of " + imagePath, e);
+        }
+    }
+}
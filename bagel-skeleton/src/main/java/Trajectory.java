@@ -0,0 +1,64 @@
+/**
+ * Trajectory is the predicted path of a shot ball: the position of the ball when it is shot and after each update,
+ * up to the update it first touches a peg (if it does).
+ */
+public class Trajectory {
+    private final double[] xs;
+    private final double[] ys;
+    private final int pegSlot;
+    private final int maxSteps;
+
+    /**
+     * constructor for a trajectory
+     * @param pegSlot the slot of the peg the ball touches at the end of the path, or -1 if it touches none
+     * @param maxSteps the most updates that were predicted
+     */
+    Trajectory(double[] xs, double[] ys, int pegSlot, int maxSteps) {
+        this.xs = xs;
+        this.ys = ys;
+        this.pegSlot = pegSlot;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Getter for the number of positions on the path, the first is where the ball is shot from
+     */
+    public int getNumPoints() {
+        return xs.length;
+    }
+
+    /**
+     * Getter for the x coordinate of a position on the path
+     */
+    public double getX(int i) {
+        return xs[i];
+    }
+
+    /**
+     * Getter for the y coordinate of a position on the path
+     */
+    public double getY(int i) {
+        return ys[i];
+    }
+
+    /**
+     * Getter for if the path ends by touching a peg
+     */
+    public boolean endsOnPeg() {
+        return pegSlot >= 0;
+    }
+
+    /**
+     * Getter for the slot (in the PegStore) of the peg touched at the end of the path, or -1 if no peg is touched
+     */
+    public int getPegSlot() {
+        return pegSlot;
+    }
+
+    /**
+     * Getter for the most updates that were predicted
+     */
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * TrajectoryPredictor works out where a ball shot towards an aim point would go, by shooting a ball of its own the
+ * same way the simulation does and moving (and sweeping) it the same way until it touches a peg, without changing
+ * anything in the game.
+ *
+ * Aim points are rounded to a grid of AIM_SPACING pixels, and the predictions for the most recently used aim points
+ * are kept. They are thrown away only when the layout of the pegs changes (see PegStore.getLayoutVersion), so while
+ * the player holds the mouse still, or moves it back and forth, nothing has to be predicted again.
+ */
+public class TrajectoryPredictor {
+    public static final double AIM_SPACING = 2;
+    private static final int MAX_CACHED = 256;
+
+    private final World world;
+    private final ArrayList<Peg> nearbyPegs = new ArrayList<>();
+    // predictions by rounded aim point, the least recently used one is dropped once there are too many
+    private final Map<Long, Trajectory> cache = new LinkedHashMap<Long, Trajectory>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Trajectory> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+    // the pegs, and their layout version, that the cached predictions were made for
+    private PegStore cachedPegs;
+    private int cachedLayoutVersion;
+
+    /**
+     * constructor for a predictor of balls shot in the given world
+     */
+    public TrajectoryPredictor(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Predicts the path of a ball shot towards an aim point, until it touches a peg, leaves the bottom of the board
+     * or has moved maxSteps times
+     * @param pegs the pegs on the board
+     * @param aimX the x coordinate of the aim point, rounded to the nearest multiple of AIM_SPACING
+     * @param aimY the y coordinate of the aim point, rounded to the nearest multiple of AIM_SPACING
+     * @param maxSteps the most updates to predict
+     */
+    public Trajectory predict(PegStore pegs, double aimX, double aimY, int maxSteps) {
+        if (pegs != cachedPegs || pegs.getLayoutVersion() != cachedLayoutVersion) {
+            cache.clear();
+            cachedPegs = pegs;
+            cachedLayoutVersion = pegs.getLayoutVersion();
+        }
+
+        long column = Math.round(aimX / AIM_SPACING);
+        long row = Math.round(aimY / AIM_SPACING);
+        Long key = (column << 32) ^ (row & 0xFFFFFFFFL);
+        Trajectory trajectory = cache.get(key);
+        if (trajectory == null || trajectory.getMaxSteps() != maxSteps) {
+            trajectory = simulate(pegs, column * AIM_SPACING, row * AIM_SPACING, maxSteps);
+            cache.put(key, trajectory);
+        }
+        return trajectory;
+    }
+
+    /**
+     * moves a ball shot towards the aim point as the simulation would, checking for pegs in the same way as
+     * Simulation.checkForCollision after every update
+     */
+    private Trajectory simulate(PegStore pegs, double aimX, double aimY, int maxSteps) {
+        Ball ball = Simulation.shootBall(aimX, aimY);
+        double[] xs = new double[maxSteps + 1];
+        double[] ys = new double[maxSteps + 1];
+        xs[0] = ball.getX();
+        ys[0] = ball.getY();
+        int numPoints = 1;
+        int pegSlot = -1;
+
+        while (numPoints <= maxSteps && pegSlot < 0 && ball.getY() <= world.getHeight()) {
+            ball.savePreviousPosition();
+            ball.update(world);
+            Simulation.sweepToFirstPeg(ball, pegs.getGrid(), nearbyPegs);
+            xs[numPoints] = ball.getX();
+            ys[numPoints] = ball.getY();
+            numPoints++;
+
+            nearbyPegs.clear();
+            pegs.getGrid().findNear(ball, nearbyPegs);
+            for (Peg peg : nearbyPegs) {
+                if (ball.intersects(peg)) {
+                    pegSlot = peg.getSlot();
+                    break;
+                }
+            }
+        }
+        return new Trajectory(Arrays.copyOf(xs, numPoints), Arrays.copyOf(ys, numPoints), pegSlot, maxSteps);
+    }
+}
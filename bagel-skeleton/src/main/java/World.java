@@ -0,0 +1,42 @@
+/**
+ * World holds the bounds of the area the game is played in. Objects that bounce off the edges of the screen ask
+ * the world for its size instead of the window, which means the game can be simulated without a window being open.
+ */
+public class World {
+    public static final double DEFAULT_WIDTH = 1024;
+    public static final double DEFAULT_HEIGHT = 768;
+
+    private final double width;
+    private final double height;
+
+    /**
+     * constructor for a world the same size as the default game window
+     */
+    public World() {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+
+    /**
+     * constructor for a world with the given bounds
+     * @param width the width of the world in pixels
+     * @param height the height of the world in pixels
+     */
+    public World(double width, double height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Getter for the width of the world
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter for the height of the world
+     */
+    public double getHeight() {
+        return height;
+    }
+}
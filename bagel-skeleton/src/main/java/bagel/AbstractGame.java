@@ -1,13 +1,6 @@
 package bagel;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.lang.management.ManagementFactory;
-import java.util.ArrayList;
-import java.util.List;
-
-import static org.lwjgl.glfw.GLFW.*;
+import java.io.IOException;
 
 /**
  * The base class for all Bagel games.
@@ -15,9 +8,23 @@ import static org.lwjgl.glfw.GLFW.*;
  * @author Eleanor McMurtry
  */
 public abstract class AbstractGame {
+    /**
+     * The most updates run in a single frame when using a fixed timestep. If the game falls further behind than
+     * this, the remaining time is dropped rather than caught up on, so a slow frame can't cause even slower frames.
+     */
+    private static final int MAX_UPDATES_PER_FRAME = 5;
+
     private final Input input;
     private final Window window;
 
+    // Zero means update() runs exactly once per frame
+    private long updateNanos = 0;
+    private long accumulatedNanos = 0;
+    private long lastFrameTime;
+
+    // Null unless the game's input is being recorded
+    private InputRecorder inputRecorder;
+
     /**
      * Create the game with a default window size (1024x768) and title ("Game").
      */
@@ -33,101 +40,27 @@ public abstract class AbstractGame {
     }
 
     /**
-     * Create the game.
+     * Create the game, shown on screen with OpenGL.
      */
     public AbstractGame(int width, int height, String title) {
-        input = new Input();
-        window = createWindow(width, height, title);
+        this(width, height, title, RenderBackend.openGL());
     }
-    /**
-     * Useful utility to restart the JVM automatically with -XstartOnFirstThread argument on MacOSX as required by GLFW.
-     * Method originally written by <b>Kappa</b> on the Java-Gaming forums. This code was from shared code snippet which
-     * was copied from http://www.java-gaming.org/topics/starting-jvm-on-mac-with-xstartonfirstthread-programmatically/37697/view.html
-     *
-     * Apple's fault. Sorry.
-     */
-    private static void checkForXstartOnFirstThread() {
-        // get current jvm process pid
-        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
-        // get environment variable on whether XstartOnFirstThread is enabled
-        String env = System.getenv("JAVA_STARTED_ON_FIRST_THREAD_" + pid);
-
-        // if environment variable is "1" then XstartOnFirstThread is enabled
-        if (env == null || !env.equals("1")) {
-            // restart jvm with -XstartOnFirstThread
-            String separator = System.getProperty("file.separator");
-            String classpath = System.getProperty("java.class.path");
-            String mainClass = System.getenv("JAVA_MAIN_CLASS_" + pid);
-            String jvmPath = System.getProperty("java.home") + separator + "bin" + separator + "java";
-
-            if (mainClass == null) {
-                StackTraceElement[] stack = Thread.currentThread().getStackTrace();
-                StackTraceElement main = stack[stack.length - 1];
-                mainClass = main.getClassName();
-            }
-
-            List<String> inputArguments = ManagementFactory.getRuntimeMXBean().getInputArguments();
-
-            List<String> jvmArgs = new ArrayList<>();
-
-            jvmArgs.add(jvmPath);
-            jvmArgs.add("-XstartOnFirstThread");
-            jvmArgs.addAll(inputArguments);
-            jvmArgs.add("-cp");
-            jvmArgs.add(classpath);
-            jvmArgs.add(mainClass);
-
-            try {
-                ProcessBuilder processBuilder = new ProcessBuilder(jvmArgs);
-                processBuilder.redirectErrorStream(true);
-                Process process = processBuilder.start();
-
-                InputStream is = process.getInputStream();
-                InputStreamReader isr = new InputStreamReader(is);
-                BufferedReader br = new BufferedReader(isr);
-
-                String line;
-
-                while ((line = br.readLine()) != null)
-                    System.out.println(line);
-
-                process.waitFor();
-                System.exit(process.exitValue());
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
 
-            System.exit(-1);
-        }
+    /**
+     * Create the game, with its frames drawn by the given backend.
+     */
+    public AbstractGame(int width, int height, String title, RenderBackend backend) {
+        input = new Input();
+        window = createWindow(width, height, title, backend);
     }
-
     static {
-        // Check that we won't fall apart on OS X
-        if (System.getProperty("os.name").toLowerCase().startsWith("mac os x")) {
-            checkForXstartOnFirstThread();
-        }
-
-        if (!glfwInit()) {
-            throw new BagelError("Failed to initialise LWJGL");
-        }
-
-        glfwDefaultWindowHints();
-        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
-        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
-        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
-        glfwWindowHint(GLFW_RESIZABLE, GLFW_FALSE);
-        glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
-        glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE);
-        // This one's important for Hi-DPI
-        glfwWindowHint(GLFW_SCALE_TO_MONITOR, GLFW_TRUE);
-
         System.out.println("Bagel v1.9.2 (May 20th, 2020)");
     }
     /**
      * Create the window.
      */
-    private Window createWindow(int width, int height, String title) {
-        Window window = new Window(width, height, title);
+    private Window createWindow(int width, int height, String title, RenderBackend backend) {
+        Window window = new Window(width, height, title, backend);
         window.setInputHandlers(input);
 
         return window;
@@ -137,7 +70,65 @@ public abstract class AbstractGame {
      * Start the game loop.
      */
     public final void run() {
-        window.loop(this::step);
+        lastFrameTime = System.nanoTime();
+        try {
+            window.loop(this::step);
+        } finally {
+            stopRecordingInput();
+        }
+    }
+
+    /**
+     * Record the input seen by every update from now on to an input log, until the game loop ends. The log can be
+     * played back with {@link #replay(InputReplay)}, which makes the game do exactly what it did while recording as
+     * long as everything it does depends only on its input and the seed.
+     *
+     * @param seed stored in the log, for a game to start a replay the same way it started the recorded game
+     * @throws BagelError if the file can't be written
+     */
+    protected void recordInput(String filename, long seed) {
+        stopRecordingInput();
+        try {
+            inputRecorder = new InputRecorder(filename, Window.getWidth(), Window.getHeight(), seed);
+        } catch (IOException e) {
+            throw new BagelError("Error recording input: " + filename, e);
+        }
+    }
+
+    /**
+     * Stop recording input, if it is being recorded.
+     */
+    protected void stopRecordingInput() {
+        if (inputRecorder != null) {
+            try {
+                inputRecorder.close();
+            } catch (IOException e) {
+                throw new BagelError("Error recording input", e);
+            } finally {
+                inputRecorder = null;
+            }
+        }
+    }
+
+    /**
+     * Run {@link #update(Input)} once for every update in an input log, as fast as possible. Nothing is drawn to the
+     * window while replaying. The replay stops early if the game closes the window.
+     */
+    public final void replay(InputReplay replay) {
+        while (!window.isClosing() && replay.next()) {
+            update(replay.getInput());
+            window.discardRenderJobs();
+        }
+    }
+
+    /**
+     * Run {@link #update(Input)} a fixed number of times per second, no matter how often frames are drawn.
+     * Several updates may run before a frame is drawn, or none at all; {@link #render(double)} is called once per
+     * frame afterwards. A value of 0 (the default) runs update() exactly once per frame.
+     */
+    protected void setFixedTimestep(double updatesPerSecond) {
+        updateNanos = updatesPerSecond > 0 ? (long) (1e9 / updatesPerSecond) : 0;
+        accumulatedNanos = 0;
     }
 
     /**
@@ -145,11 +136,70 @@ public abstract class AbstractGame {
      */
     protected abstract void update(Input input);
 
+    /**
+     * Draw the game. Called once per frame, after that frame's updates.
+     *
+     * @param alpha how far (from 0 to 1) the current time is between the last update and the next one. Drawing moving
+     *              objects between their previous and current positions by this amount makes them move smoothly when
+     *              using a fixed timestep. Always 1 when not using a fixed timestep.
+     */
+    protected void render(double alpha) {
+    }
+
     /**
      * Perform a single step of the game loop.
      */
     private void step() {
+        if (updateNanos == 0) {
+            runUpdate();
+            runRender(1);
+            return;
+        }
+
+        long now = System.nanoTime();
+        accumulatedNanos += now - lastFrameTime;
+        lastFrameTime = now;
+
+        int updates = 0;
+        while (accumulatedNanos >= updateNanos && updates < MAX_UPDATES_PER_FRAME) {
+            // Only move input on once an update has seen it, so presses between updates aren't lost
+            runUpdate();
+            accumulatedNanos -= updateNanos;
+            updates++;
+        }
+        if (accumulatedNanos >= updateNanos) {
+            // Too far behind: drop the backlog instead of trying to catch up
+            accumulatedNanos %= updateNanos;
+        }
+
+        runRender((double) accumulatedNanos / updateNanos);
+    }
+
+    /**
+     * Run a single update, recording the input it sees if the input is being recorded.
+     */
+    private void runUpdate() {
+        FrameProfiler profiler = Window.getProfiler();
+        long start = profiler.start();
+        if (inputRecorder != null) {
+            try {
+                inputRecorder.record(input);
+            } catch (IOException e) {
+                throw new BagelError("Error recording input", e);
+            }
+        }
         update(input);
         input.updateState();
+        profiler.end(FrameProfiler.Phase.UPDATE, start);
+    }
+
+    /**
+     * Draw a frame, timing it if the window's profiler is enabled.
+     */
+    private void runRender(double alpha) {
+        FrameProfiler profiler = Window.getProfiler();
+        long start = profiler.start();
+        render(alpha);
+        profiler.end(FrameProfiler.Phase.RENDER, start);
     }
 }
@@ -0,0 +1,13 @@
+package bagel;
+
+/**
+ * The states a key can be in.
+ *
+ * @author Eleanor McMurtry
+ */
+enum ButtonState {
+    PRESSED,
+    DOWN,
+    RELEASED,
+    UP
+}
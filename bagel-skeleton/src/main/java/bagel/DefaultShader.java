@@ -1,85 +1,180 @@
 package bagel;
 
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 
 /**
  * Handles the GLSL vertex and fragment shaders.
+ *
+ * Rather than drawing each sprite on its own, sprites are drawn as instances of one unit quad. Each sprite only writes
+ * its position, size, rotation, texture region, section and blend colour into an instance buffer, and the vertex
+ * shader works out the corners. The buffer is drawn with a single instanced call whenever the texture changes, the
+ * buffer fills up, another shader is bound, or the frame ends.
  */
 class DefaultShader extends Shader {
+    // Sprites in one draw call; a full buffer is about 1 MB
+    private static final int MAX_SPRITES = 16384;
+    // blend (r, g, b, a), section (xOffset, yOffset, xMax, yMax), transform (x, y, width, height),
+    // region (uMin, vMin, uSize, vSize), rotation
+    private static final int FLOATS_PER_SPRITE = 17;
+    private static final int FLOATS_PER_CORNER = 4;
+    private static final byte[] INDICES = {0, 1, 2, 2, 3, 0};
+
+    // Corners of the unit quad and their texture coordinates, in the same order as Shader's quad
+    private static final float[] CORNERS = {
+             0.5f,   0.5f, 1f, 1f,
+             0.5f,  -0.5f, 1f, 0f,
+            -0.5f,  -0.5f, 0f, 0f,
+            -0.5f,   0.5f, 0f, 1f,
+    };
+
+    private final boolean premultiplied;
+    private final int shaderProgram;
+    private final int yDirectionLocation;
     private final int vaoId;
-    private final int vboId;
+    private final int instanceVboId;
+    private final int eboId;
 
-    private final int positionUniformLocation;
-    private final int scaleUniformLocation;
-    private final int rotationUniformLocation;
-    private final int blendUniformLocation;
-    private final int xOffUniformLocation;
-    private final int yOffUniformLocation;
-    private final int xMaxUniformLocation;
-    private final int yMaxUniformLocation;
+    private final FloatBuffer instances = BufferUtils.createFloatBuffer(MAX_SPRITES * FLOATS_PER_SPRITE);
+    private int numSprites = 0;
+    private Texture batchTexture;
 
     private static DefaultShader INSTANCE;
     static DefaultShader get() {
         if (INSTANCE == null) {
-            INSTANCE = new DefaultShader();
+            INSTANCE = new DefaultShader(false);
         }
         return INSTANCE;
     }
 
+    private static DefaultShader PREMULTIPLIED_INSTANCE;
+    /**
+     * The shader for textures whose colours are already multiplied by their alpha, such as a {@link RenderLayer}.
+     */
+    static DefaultShader getPremultiplied() {
+        if (PREMULTIPLIED_INSTANCE == null) {
+            PREMULTIPLIED_INSTANCE = new DefaultShader(true);
+        }
+        return PREMULTIPLIED_INSTANCE;
+    }
+
     /**
      * Initialise the shader.
      */
-    private DefaultShader() {
+    private DefaultShader(boolean premultiplied) {
+        this.premultiplied = premultiplied;
         // Compile the shader and create buffer objects
-        int shaderProgram = Shader.generateShaderProgram("default.vert", "default.frag");
-        vaoId = Shader.generateVaoId();
-        vboId = Shader.generateVboId();
-
-        // Load uniform locations to send data to the shader
-        int widthUniformLocation = GL20.glGetUniformLocation(shaderProgram, "width");
-        int heightUniformLocation = GL20.glGetUniformLocation(shaderProgram, "height");
-        positionUniformLocation = GL20.glGetUniformLocation(shaderProgram, "translation");
-        scaleUniformLocation = GL20.glGetUniformLocation(shaderProgram, "scale");
-        rotationUniformLocation = GL20.glGetUniformLocation(shaderProgram, "rotation");
-        blendUniformLocation = GL20.glGetUniformLocation(shaderProgram, "blend");
-        xOffUniformLocation = GL20.glGetUniformLocation(shaderProgram, "xOffset");
-        yOffUniformLocation = GL20.glGetUniformLocation(shaderProgram, "yOffset");
-        xMaxUniformLocation = GL20.glGetUniformLocation(shaderProgram, "xMax");
-        yMaxUniformLocation = GL20.glGetUniformLocation(shaderProgram, "yMax");
+        shaderProgram = Shader.generateShaderProgram("instanced.vert", "default.frag");
+
+        vaoId = GL30.glGenVertexArrays();
+        GL30.glBindVertexArray(vaoId);
+
+        // The unit quad every sprite is an instance of
+        FloatBuffer corners = BufferUtils.createFloatBuffer(CORNERS.length);
+        corners.put(CORNERS).flip();
+        int cornerVboId = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, cornerVboId);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, corners, GL15.GL_STATIC_DRAW);
+        int cornerStride = FLOATS_PER_CORNER * Float.BYTES;
+        GL20.glVertexAttribPointer(0, 2, GL11.GL_FLOAT, false, cornerStride, 0);
+        GL20.glEnableVertexAttribArray(0);
+        GL20.glVertexAttribPointer(1, 2, GL11.GL_FLOAT, false, cornerStride, 2 * Float.BYTES);
+        GL20.glEnableVertexAttribArray(1);
+
+        // Attributes 2 to 6 move on once per sprite rather than once per corner
+        instanceVboId = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVboId);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) instances.capacity() * Float.BYTES, GL15.GL_STREAM_DRAW);
+        int stride = FLOATS_PER_SPRITE * Float.BYTES;
+        for (int attribute = 2; attribute <= 5; attribute++) {
+            GL20.glVertexAttribPointer(attribute, 4, GL11.GL_FLOAT, false, stride, (attribute - 2) * 4 * Float.BYTES);
+        }
+        GL20.glVertexAttribPointer(6, 1, GL11.GL_FLOAT, false, stride, 16 * Float.BYTES);
+        for (int attribute = 2; attribute <= 6; attribute++) {
+            GL20.glEnableVertexAttribArray(attribute);
+            GL33.glVertexAttribDivisor(attribute, 1);
+        }
+
+        ByteBuffer indices = BufferUtils.createByteBuffer(INDICES.length);
+        indices.put(INDICES).flip();
+        eboId = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, eboId);
+        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indices, GL15.GL_STATIC_DRAW);
 
         // Set up the shader
         GL20.glUseProgram(shaderProgram);
-        GL20.glUniform1f(widthUniformLocation, Window.getWidth());
-        GL20.glUniform1f(heightUniformLocation, Window.getHeight());
-    }
-
-    private void setUniforms(RenderInfo info) {
-        // Assign values to the shader
-        GL20.glUniform3f(positionUniformLocation, info.x, info.y, 0);
-        GL20.glUniform3f(scaleUniformLocation, (float) info.tex.w * info.xScale, (float) info.tex.h * info.yScale, 1);
-        GL20.glUniform1f(rotationUniformLocation, info.rotation);
-        GL20.glUniform4f(blendUniformLocation, info.rBlend, info.gBlend, info.bBlend, info.aBlend);
-        GL20.glUniform1f(xOffUniformLocation, info.xOffset);
-        GL20.glUniform1f(yOffUniformLocation, info.yOffset);
-        GL20.glUniform1f(xMaxUniformLocation, info.xMax);
-        GL20.glUniform1f(yMaxUniformLocation, info.yMax);
-//        System.out.println("Drawing section (" + info.xOffset + ", " + info.yOffset + ") to (" + info.xMax + ", " + info.yMax + ") at (" + info.x + ", " + info.y + ")");
+        GL20.glUniform1f(GL20.glGetUniformLocation(shaderProgram, "width"), Window.getWidth());
+        GL20.glUniform1f(GL20.glGetUniformLocation(shaderProgram, "height"), Window.getHeight());
+        yDirectionLocation = GL20.glGetUniformLocation(shaderProgram, "yDirection");
+        GL20.glUniform1f(yDirectionLocation, 1);
     }
 
     @Override
     protected void bindInternal() {
+        GL11.glBlendFunc(premultiplied ? GL11.GL_ONE : GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        GL20.glUseProgram(shaderProgram);
         GL30.glBindVertexArray(vaoId);
-        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboId);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, eboId);
+    }
+
+    /**
+     * Draw upside down, for drawing into a {@link RenderLayer}. Binds this shader.
+     */
+    void setFlipped(boolean flipped) {
+        bind();
+        GL20.glUniform1f(yDirectionLocation, flipped ? -1 : 1);
     }
 
     /**
-     * Perform a render operation.
+     * Add a sprite to the batch, drawing the batch first if the sprite can't be part of it.
      */
     @Override
     void render(RenderInfo info) {
-        setUniforms(info);
-        drawElements();
+        if (numSprites == MAX_SPRITES || (batchTexture != null && !batchTexture.equals(info.tex))) {
+            flush();
+        }
+        batchTexture = info.tex;
+
+        // The section is moved into the texture's region of its atlas
+        Texture tex = info.tex;
+        float uSize = tex.uMax - tex.uMin;
+        float vSize = tex.vMax - tex.vMin;
+        instances.put(info.rBlend).put(info.gBlend).put(info.bBlend).put(info.aBlend)
+                .put(tex.uMin + info.xOffset * uSize).put(tex.vMin + info.yOffset * vSize)
+                .put(tex.uMin + info.xMax * uSize).put(tex.vMin + info.yMax * vSize)
+                .put(info.x).put(info.y).put(tex.w * info.xScale).put(tex.h * info.yScale)
+                .put(tex.uMin).put(tex.vMin).put(uSize).put(vSize)
+                .put(info.rotation);
+        numSprites++;
+    }
+
+    /**
+     * Draw every sprite in the batch with one instanced draw call.
+     */
+    @Override
+    void flush() {
+        if (numSprites == 0) {
+            return;
+        }
+        instances.flip();
+        batchTexture.bind();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVboId);
+        // Orphan the old buffer so we don't wait for the previous draw to finish with it
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) instances.capacity() * Float.BYTES, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, instances);
+        GL31.glDrawElementsInstanced(GL11.GL_TRIANGLES, INDICES.length, GL11.GL_UNSIGNED_BYTE, 0, numSprites);
+        FrameProfiler.count(FrameProfiler.Counter.DRAW_CALLS);
+
+        instances.clear();
+        numSprites = 0;
+        batchTexture = null;
     }
 }
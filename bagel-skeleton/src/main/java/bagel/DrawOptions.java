@@ -2,35 +2,41 @@ package bagel;
 
 import bagel.util.Colour;
 
-import java.util.Optional;
-
 /**
  * Allows you to specify detailed options for drawing images.
  * Used with {@link bagel.Image#draw(double, double, DrawOptions)}.
  *
+ * Options are stored as plain floats, so drawing with them never allocates.
+ *
  * @author Eleanor McMurtry
  */
-@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
 public class DrawOptions {
-    private Optional<Float> xscale = Optional.empty();
-    private Optional<Float> yscale = Optional.empty();
-    private Optional<Float> xOffset = Optional.empty();
-    private Optional<Float> yOffset = Optional.empty();
-    private Optional<Float> xMax = Optional.empty();
-    private Optional<Float> yMax = Optional.empty();
-    private Optional<Float> rotation = Optional.empty();
-    private Optional<Float> rBlend = Optional.empty();
-    private Optional<Float> gBlend = Optional.empty();
-    private Optional<Float> bBlend = Optional.empty();
-    private Optional<Float> aBlend = Optional.empty();
-    private Shader shader = DefaultShader.get();
+    // Bits of `hasValue`: whether an option without a fixed default has been set
+    private static final int SECTION = 1;
+
+    private int hasValue = 0;
+    private float xscale = 1;
+    private float yscale = 1;
+    private float xOffset = 0;
+    private float yOffset = 0;
+    // Only meaningful with the SECTION bit set; otherwise the whole texture is drawn
+    private float xMax;
+    private float yMax;
+    private float rotation = 0;
+    private float rBlend = 1;
+    private float gBlend = 1;
+    private float bBlend = 1;
+    private float aBlend = 1;
+    // null means the default shader, which can't be created before the window (and not at all without OpenGL)
+    private Shader shader = null;
+    private int layer = 0;
 
     /**
      * Set the scale of the image. A value of 1.0 results in no stretching.
      */
     public DrawOptions setScale(double xscale, double yscale) {
-        this.xscale = Optional.of((float) xscale);
-        this.yscale = Optional.of((float) yscale);
+        this.xscale = (float) xscale;
+        this.yscale = (float) yscale;
         return this;
     }
 
@@ -38,7 +44,7 @@ public class DrawOptions {
      * Set the rotation of the image in the usual mathematical sense, measured in radians.
      */
     public DrawOptions setRotation(double rotation) {
-        this.rotation = Optional.of((float) rotation);
+        this.rotation = (float) rotation;
         return this;
     }
 
@@ -46,9 +52,9 @@ public class DrawOptions {
      * Sets the colour to blend the image with, where (0.0, 0.0, 0.0) is black and (1.0, 1.0, 1.0) is white.
      */
     public DrawOptions setBlendColour(double r, double g, double b) {
-        rBlend = Optional.of((float) r);
-        gBlend = Optional.of((float) g);
-        bBlend = Optional.of((float) b);
+        rBlend = (float) r;
+        gBlend = (float) g;
+        bBlend = (float) b;
         return this;
     }
 
@@ -57,10 +63,10 @@ public class DrawOptions {
      * @param a the alpha (transparency ratio) to use
      */
     public DrawOptions setBlendColour(double r, double g, double b, double a) {
-        rBlend = Optional.of((float) r);
-        gBlend = Optional.of((float) g);
-        bBlend = Optional.of((float) b);
-        aBlend = Optional.of((float) a);
+        rBlend = (float) r;
+        gBlend = (float) g;
+        bBlend = (float) b;
+        aBlend = (float) a;
         return this;
     }
 
@@ -68,10 +74,10 @@ public class DrawOptions {
      * Sets the colour to blend the image with, using the {@link Colour} class.
      */
     public DrawOptions setBlendColour(Colour colour) {
-        rBlend = Optional.of((float) colour.r);
-        gBlend = Optional.of((float) colour.g);
-        bBlend = Optional.of((float) colour.b);
-        aBlend = Optional.of((float) colour.a);
+        rBlend = (float) colour.r;
+        gBlend = (float) colour.g;
+        bBlend = (float) colour.b;
+        aBlend = (float) colour.a;
         return this;
     }
 
@@ -80,10 +86,21 @@ public class DrawOptions {
      * (xBegin + width, yBegin + height);
      */
     public DrawOptions setSection(double xBegin, double yBegin, double width, double height) {
-        xOffset = Optional.of((float) xBegin);
-        yOffset = Optional.of((float) yBegin);
-        xMax = Optional.of((float) (xBegin + width));
-        yMax = Optional.of((float) (yBegin + height));
+        xOffset = (float) xBegin;
+        yOffset = (float) yBegin;
+        xMax = (float) (xBegin + width);
+        yMax = (float) (yBegin + height);
+        hasValue |= SECTION;
+        return this;
+    }
+
+    /**
+     * Set the layer to draw the image in, only used when {@link Window#setSortedRendering(boolean)} is on: images in
+     * lower layers are drawn first, so images in higher layers are drawn on top of them. Within a layer, images are
+     * drawn in the order they were drawn in only if they use the same shader and texture. The default layer is 0.
+     */
+    public DrawOptions setLayer(int layer) {
+        this.layer = layer;
         return this;
     }
 
@@ -97,13 +114,17 @@ public class DrawOptions {
         return this;
     }
 
-    RenderInfo toRenderInfo(Texture tex, float x, float y) {
-        return new RenderInfo(tex, x - xOffset.orElse(0f), y - yOffset.orElse(0f),
-                xOffset.orElse(0f) / tex.w, yOffset.orElse(0f) / tex.h,
-                xMax.orElse((float) tex.w) / tex.w, yMax.orElse((float) tex.h) / tex.h,
-                xscale.orElse(1f), yscale.orElse(1f),
-                rotation.orElse(0f),
-                rBlend.orElse(1f), gBlend.orElse(1f), bBlend.orElse(1f), aBlend.orElse(1f),
-                shader);
+    /**
+     * Fill in a (reused) rendering job for drawing tex at (x, y) with these options.
+     */
+    void writeTo(RenderInfo info, Texture tex, float x, float y) {
+        boolean hasSection = (hasValue & SECTION) != 0;
+        info.set(tex, x - xOffset, y - yOffset,
+                xOffset / tex.w, yOffset / tex.h,
+                hasSection ? xMax / tex.w : 1, hasSection ? yMax / tex.h : 1,
+                xscale, yscale,
+                rotation,
+                rBlend, gBlend, bBlend, aBlend,
+                shader, layer);
     }
 }
@@ -21,7 +21,7 @@ public class Drawing {
         DrawOptions opts = new DrawOptions()
                 .setBlendColour(colour)
                 .setScale(width, height);
-        Window.get().submitRenderJob(opts.toRenderInfo(Texture.singlePixel(), (float) (topLeft.x + width / 2), (float) (topLeft.y + height / 2)));
+        Window.get().submitRenderJob(Texture.singlePixel(), (float) (topLeft.x + width / 2), (float) (topLeft.y + height / 2), opts);
     }
 
     /**
@@ -35,7 +35,7 @@ public class Drawing {
                 .setBlendColour(colour)
                 .setScale(w, thickness)
                 .setRotation(theta);
-        Window.get().submitRenderJob(opts.toRenderInfo(Texture.singlePixel(), (float) ((b.x + a.x) / 2), (float) ((b.y + a.y) / 2)));
+        Window.get().submitRenderJob(Texture.singlePixel(), (float) ((b.x + a.x) / 2), (float) ((b.y + a.y) / 2), opts);
     }
 
     /**
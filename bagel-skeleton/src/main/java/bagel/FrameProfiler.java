@@ -0,0 +1,272 @@
+package bagel;
+
+import bagel.util.LogHistogram;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Measures where the time of each frame goes, and how much rendering work each frame does. Get the window's profiler
+ * with {@link Window#getProfiler()}; it measures nothing until it is enabled.
+ *
+ * Each phase of a frame is timed separately and counted in a histogram, as is the number of draw calls, texture binds,
+ * shader binds and rendering jobs in each frame. The histograms hold every frame since the profiler was enabled or last
+ * reset, or since the last dump when dumping to a file.
+ *
+ * OpenGL works in the background, so {@link Phase#RENDER_QUEUE} is the time taken to hand the frame to OpenGL, and
+ * waiting for it to be drawn usually shows up in {@link Phase#SWAP} instead.
+ */
+public class FrameProfiler {
+    /**
+     * The parts of a frame that are timed.
+     */
+    public enum Phase {
+        /** Handling window and input events. */
+        POLL_EVENTS,
+        /** The game's updates, however many ran in the frame. */
+        UPDATE,
+        /** The game's render method, which submits rendering jobs. */
+        RENDER,
+        /** Drawing the frame's rendering jobs. */
+        RENDER_QUEUE,
+        /** Swapping the drawn frame onto the screen, which waits for vsync if it is on. */
+        SWAP,
+        /** The whole frame. */
+        FRAME
+    }
+
+    /**
+     * The rendering work that is counted in each frame.
+     */
+    public enum Counter {
+        DRAW_CALLS,
+        TEXTURE_BINDS,
+        SHADER_BINDS,
+        RENDER_JOBS,
+        /** How many fewer shader or texture changes there were than in submission order, when sorting is on. */
+        STATE_CHANGES_SAVED
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    // Counted wherever the work is done, whether or not a profiler is enabled; the work of one frame at a time
+    private static final long[] frameCounts = new long[COUNTERS.length];
+
+    private final Map<Phase, LogHistogram> phaseHistograms = new EnumMap<>(Phase.class);
+    private final Map<Counter, LogHistogram> counterHistograms = new EnumMap<>(Counter.class);
+    private final long[] frameNanos = new long[PHASES.length];
+    private final long[] lastFrameNanos = new long[PHASES.length];
+    private final long[] lastFrameCounts = new long[COUNTERS.length];
+    private boolean enabled = false;
+    private long frameStart;
+
+    private PrintWriter dumpWriter;
+    private long dumpIntervalNanos;
+    private long lastDump;
+
+    FrameProfiler() {
+        for (Phase phase : PHASES) {
+            phaseHistograms.put(phase, new LogHistogram());
+        }
+        for (Counter counter : COUNTERS) {
+            counterHistograms.put(counter, new LogHistogram());
+        }
+    }
+
+    /**
+     * Start or stop measuring frames. Stopping also stops dumping to a file.
+     */
+    public void setEnabled(boolean enabled) {
+        if (!enabled) {
+            stopDumping();
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * Whether frames are being measured.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Forget every frame measured so far.
+     */
+    public void reset() {
+        for (LogHistogram histogram : phaseHistograms.values()) {
+            histogram.reset();
+        }
+        for (LogHistogram histogram : counterHistograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * The time taken by a phase in every frame measured, in nanoseconds.
+     */
+    public LogHistogram getHistogram(Phase phase) {
+        return phaseHistograms.get(phase);
+    }
+
+    /**
+     * How many times the work was done in every frame measured.
+     */
+    public LogHistogram getHistogram(Counter counter) {
+        return counterHistograms.get(counter);
+    }
+
+    /**
+     * The time taken by a phase in the last frame measured, in nanoseconds.
+     */
+    public long getLastFrameNanos(Phase phase) {
+        return lastFrameNanos[phase.ordinal()];
+    }
+
+    /**
+     * How many times the work was done in the last frame measured.
+     */
+    public long getLastFrameCount(Counter counter) {
+        return lastFrameCounts[counter.ordinal()];
+    }
+
+    /**
+     * Enable the profiler and append a report of the frames measured to a csv file every intervalSeconds, after which
+     * the histograms are reset. Each report has one line per phase (in microseconds) and counter, with the columns
+     * given by the header line written to a new file. The file is closed when the window closes.
+     *
+     * @throws BagelError if the file can't be written
+     */
+    public void dumpTo(String filename, double intervalSeconds) {
+        stopDumping();
+        Path path = Paths.get(filename);
+        boolean isNew;
+        try {
+            isNew = !Files.exists(path) || Files.size(path) == 0;
+            dumpWriter = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        } catch (IOException e) {
+            throw new BagelError("Error opening profile dump: " + filename, e);
+        }
+        if (isNew) {
+            dumpWriter.println("time_ms,metric,frames,mean,p50,p90,p99,max");
+        }
+        dumpIntervalNanos = (long) (intervalSeconds * 1e9);
+        lastDump = System.nanoTime();
+        reset();
+        enabled = true;
+    }
+
+    /**
+     * Write the last report and close the dump file, if dumping.
+     */
+    void stopDumping() {
+        if (dumpWriter != null) {
+            dump();
+            dumpWriter.close();
+            dumpWriter = null;
+        }
+    }
+
+    /**
+     * Start measuring a frame.
+     */
+    void beginFrame() {
+        if (enabled) {
+            frameStart = System.nanoTime();
+        }
+    }
+
+    /**
+     * The current time if enabled, to pass to {@link #end(Phase, long)} at the end of a phase.
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Add the time since start to a phase of the current frame. Returns the current time, to start the next phase with.
+     */
+    long end(Phase phase, long start) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        frameNanos[phase.ordinal()] += now - start;
+        return now;
+    }
+
+    /**
+     * Finish measuring a frame, and dump the frames measured if it is time to.
+     */
+    void endFrame() {
+        if (enabled) {
+            long now = System.nanoTime();
+            frameNanos[Phase.FRAME.ordinal()] = now - frameStart;
+            for (Phase phase : PHASES) {
+                lastFrameNanos[phase.ordinal()] = frameNanos[phase.ordinal()];
+                phaseHistograms.get(phase).record(frameNanos[phase.ordinal()]);
+                frameNanos[phase.ordinal()] = 0;
+            }
+            for (Counter counter : COUNTERS) {
+                lastFrameCounts[counter.ordinal()] = frameCounts[counter.ordinal()];
+                counterHistograms.get(counter).record(frameCounts[counter.ordinal()]);
+            }
+            if (dumpWriter != null && now - lastDump >= dumpIntervalNanos) {
+                dump();
+                lastDump = System.nanoTime();
+            }
+        }
+        for (int i = 0; i < frameCounts.length; i++) {
+            frameCounts[i] = 0;
+        }
+    }
+
+    /**
+     * Count work done in the current frame.
+     */
+    static void count(Counter counter) {
+        frameCounts[counter.ordinal()]++;
+    }
+
+    /**
+     * Count work done in the current frame several times.
+     */
+    static void count(Counter counter, long amount) {
+        frameCounts[counter.ordinal()] += amount;
+    }
+
+    /**
+     * Write a report of the frames measured to the dump file, and reset the histograms.
+     */
+    private void dump() {
+        long time = System.currentTimeMillis();
+        for (Phase phase : PHASES) {
+            writeLine(time, phase.name(), phaseHistograms.get(phase), 1e3);
+        }
+        for (Counter counter : COUNTERS) {
+            writeLine(time, counter.name(), counterHistograms.get(counter), 1);
+        }
+        dumpWriter.flush();
+        if (dumpWriter.checkError()) {
+            throw new BagelError("Error writing profile dump");
+        }
+        reset();
+    }
+
+    private void writeLine(long time, String metric, LogHistogram histogram, double unit) {
+        dumpWriter.printf(Locale.ROOT, "%d,%s,%d,%.1f,%.1f,%.1f,%.1f,%.1f%n", time, metric, histogram.getCount(),
+                histogram.getMean() / unit, histogram.getValueAtPercentile(50) / unit,
+                histogram.getValueAtPercentile(90) / unit, histogram.getValueAtPercentile(99) / unit,
+                histogram.getMax() / unit);
+    }
+}
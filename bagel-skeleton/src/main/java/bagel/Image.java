@@ -3,12 +3,17 @@ package bagel;
 import bagel.util.Point;
 import bagel.util.Rectangle;
 
+import java.util.Arrays;
+
 /**
  * Class to load and draw an image.
  *
  * @author Eleanor McMurtry
  */
 public class Image {
+    // Used by the draw methods without options; never changed, so it can be shared instead of allocated every draw
+    private static final DrawOptions DEFAULT_OPTIONS = new DrawOptions();
+
     private final Texture tex;
 
     /**
@@ -21,11 +26,33 @@ public class Image {
         tex = TextureManager.getTexture(filename);
     }
 
+    /**
+     * Load several images into one or more shared textures (an atlas), so that drawing them one after another is
+     * cheaper. Call this before creating any Image from these files; images that are already loaded are not packed.
+     * @param filenames the filenames to pack
+     */
+    public static void packAtlas(String... filenames) {
+        // Check that a window exists first
+        Window.get();
+        TextureManager.packAtlas(Arrays.asList(filenames));
+    }
+
+    /**
+     * Load the images listed in a manifest file into one or more shared textures, as in {@link #packAtlas(String...)}.
+     * The manifest lists one filename per line; blank lines and lines starting with '#' are skipped.
+     * @param manifestFile the filename of the manifest
+     */
+    public static void packAtlasFromManifest(String manifestFile) {
+        // Check that a window exists first
+        Window.get();
+        TextureManager.packAtlasFromManifest(manifestFile);
+    }
+
     /**
      * Draw the image with its top-left at (x, y).
      */
     public void drawFromTopLeft(double x, double y) {
-        drawFromTopLeft(x, y, new DrawOptions());
+        drawFromTopLeft(x, y, DEFAULT_OPTIONS);
     }
 
     /**
@@ -39,14 +66,14 @@ public class Image {
      * Draw the image with its centre at (x, y).
      */
     public void draw(double x, double y) {
-        draw(x, y, new DrawOptions());
+        draw(x, y, DEFAULT_OPTIONS);
     }
 
     /**
      * Draw the image with advanced options as described by an {@link DrawOptions} object.
      */
     public void draw(double x, double y, DrawOptions options) {
-        Window.get().submitRenderJob(options.toRenderInfo(tex, (float) x, (float) y));
+        Window.get().submitRenderJob(tex, (float) x, (float) y, options);
     }
 
     /**
@@ -3,7 +3,7 @@ package bagel;
 import bagel.util.Point;
 import bagel.util.Vector2;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -15,25 +15,27 @@ import static org.lwjgl.glfw.GLFW.*;
  * @author Eleanor McMurtry
  */
 public class Input {
-    private static final Map<Keys, ButtonState> keyStates = new HashMap<>();
-    private static final Map<MouseButtons, ButtonState> mouseStates = new HashMap<>();
+    // Each Input has its own state, so a replayed input can't be mixed up with the real one
+    private final Map<Keys, ButtonState> keyStates = new EnumMap<>(Keys.class);
+    private final Map<MouseButtons, ButtonState> mouseStates = new EnumMap<>(MouseButtons.class);
 
     private double lastMouseX;
     private double lastMouseY;
     private double xScaling = 0;
     private double yScaling = 0;
 
-    static {
+    /**
+     * Package-private as the instantiation of this class is handled by {@link AbstractGame} (or {@link InputReplay}).
+     */
+    Input() {
         for (Keys key : Keys.values()) {
             keyStates.put(key, ButtonState.UP);
         }
+        for (MouseButtons button : MouseButtons.values()) {
+            mouseStates.put(button, ButtonState.UP);
+        }
     }
 
-    /**
-     * Package-private as the instantiation of this class is handled by {@link AbstractGame}.
-     */
-    Input() {}
-
     /**
      * Called when a keyboard event occurs.
      */
@@ -80,6 +82,27 @@ public class Input {
                 });
     }
 
+    ButtonState getState(Keys key) {
+        return keyStates.get(key);
+    }
+
+    ButtonState getState(MouseButtons button) {
+        return mouseStates.get(button);
+    }
+
+    void setState(Keys key, ButtonState state) {
+        keyStates.put(key, state);
+    }
+
+    void setState(MouseButtons button, ButtonState state) {
+        mouseStates.put(button, state);
+    }
+
+    void setMousePosition(double x, double y) {
+        lastMouseX = x;
+        lastMouseY = y;
+    }
+
     /**
      * Updates the input state; this changes from "freshly changed" to a continuous state.
      */
@@ -200,15 +223,3 @@ public class Input {
         return wasReleased(button) || mouseStates.get(button) == ButtonState.UP;
     }
 }
-
-/**
- * The states a key can be in.
- *
- * @author Eleanor McMurtry
- */
-enum ButtonState {
-    PRESSED,
-    DOWN,
-    RELEASED,
-    UP
-}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package bagel;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Writes the input seen by every update to an input log, which {@link InputReplay} reads back.
+ *
+ * An input log is a header followed by one record per update:
+ *
+ * header: magic number (int), version (short), window width (int), window height (int), seed (long),
+ *         number of keys (short), number of mouse buttons (short)
+ * record: mouse x (double), mouse y (double), number of changed buttons (short),
+ *         then for each changed button: index (short), state (byte, ordinal of ButtonState)
+ *
+ * Keys are indexed by their ordinal, and mouse buttons by their ordinal after the keys. A record only lists the
+ * buttons whose state is different from the record before it (every button starts off up), so a record is usually
+ * 18 bytes. All numbers are big-endian, and the log is only ever appended to.
+ */
+class InputRecorder implements AutoCloseable {
+    static final int MAGIC = 0x42474C49; // "BGLI"
+    static final short VERSION = 1;
+    static final Keys[] KEYS = Keys.values();
+    static final MouseButtons[] BUTTONS = MouseButtons.values();
+
+    private final DataOutputStream out;
+    // The state of every button in the last record, keys first
+    private final ButtonState[] lastStates = new ButtonState[KEYS.length + BUTTONS.length];
+    private final short[] changed = new short[lastStates.length];
+
+    InputRecorder(String filename, int width, int height, long seed) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeLong(seed);
+        out.writeShort(KEYS.length);
+        out.writeShort(BUTTONS.length);
+        Arrays.fill(lastStates, ButtonState.UP);
+    }
+
+    /**
+     * Append a record of the input as it is now.
+     */
+    void record(Input input) throws IOException {
+        int numChanged = 0;
+        for (int i = 0; i < lastStates.length; i++) {
+            ButtonState state = i < KEYS.length ? input.getState(KEYS[i]) : input.getState(BUTTONS[i - KEYS.length]);
+            if (state != lastStates[i]) {
+                lastStates[i] = state;
+                changed[numChanged++] = (short) i;
+            }
+        }
+
+        out.writeDouble(input.getMouseX());
+        out.writeDouble(input.getMouseY());
+        out.writeShort(numChanged);
+        for (int i = 0; i < numChanged; i++) {
+            out.writeShort(changed[i]);
+            out.writeByte(lastStates[changed[i]].ordinal());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,146 @@
+package bagel;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads back an input log written while a game was recording its input (see {@link AbstractGame#recordInput}), one
+ * update at a time. Nothing here needs a window, so a recorded game can be replayed without one.
+ */
+public class InputReplay implements AutoCloseable {
+    private static final ButtonState[] STATES = ButtonState.values();
+
+    private final String filename;
+    private final DataInputStream in;
+    private final Input input = new Input();
+    // The index and state of each button changed by the record being read
+    private final int[] changed = new int[(InputRecorder.KEYS.length + InputRecorder.BUTTONS.length) * 2];
+    private final int width;
+    private final int height;
+    private final long seed;
+    private long updates = 0;
+
+    /**
+     * Open an input log.
+     * @throws BagelError if the file can't be read, or isn't an input log this version of Bagel can replay
+     */
+    public InputReplay(String filename) {
+        this.filename = filename;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+        } catch (IOException e) {
+            throw new BagelError("Error loading input log: " + filename, e);
+        }
+        try {
+            if (in.readInt() != InputRecorder.MAGIC || in.readShort() != InputRecorder.VERSION) {
+                throw new BagelError("Error loading input log: " + filename + " is not an input log of version "
+                        + InputRecorder.VERSION);
+            }
+            width = in.readInt();
+            height = in.readInt();
+            seed = in.readLong();
+            if (in.readShort() != InputRecorder.KEYS.length || in.readShort() != InputRecorder.BUTTONS.length) {
+                throw new BagelError("Error loading input log: " + filename
+                        + " was recorded with a different set of keys or mouse buttons");
+            }
+        } catch (IOException e) {
+            close();
+            throw new BagelError("Error loading input log: " + filename, e);
+        } catch (BagelError e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the width of the window the game was recorded in.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the window the game was recorded in.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the seed the game gave when it started recording.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the input of the current update, which changes every time {@link #next()} is called.
+     */
+    public Input getInput() {
+        return input;
+    }
+
+    /**
+     * Returns the number of updates read so far.
+     */
+    public long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Move on to the next recorded update, setting the input to what the game saw in that update.
+     * @return false once every update has been read. A log that ends part way through an update (because the game
+     *         crashed while recording, say) ends at the last whole update.
+     * @throws BagelError if the file can't be read, or is not a valid input log
+     */
+    public boolean next() {
+        try {
+            double mouseX = in.readDouble();
+            double mouseY = in.readDouble();
+            int numChanged = in.readUnsignedShort();
+            if (numChanged > InputRecorder.KEYS.length + InputRecorder.BUTTONS.length) {
+                throw new BagelError("Error reading input log: " + filename + " is not a valid input log");
+            }
+            // Read the whole record before changing anything, so an incomplete record leaves the input as it was
+            for (int i = 0; i < numChanged * 2; i += 2) {
+                changed[i] = in.readUnsignedShort();
+                changed[i + 1] = in.readUnsignedByte();
+                if (changed[i] >= InputRecorder.KEYS.length + InputRecorder.BUTTONS.length
+                        || changed[i + 1] >= STATES.length) {
+                    throw new BagelError("Error reading input log: " + filename + " is not a valid input log");
+                }
+            }
+
+            input.setMousePosition(mouseX, mouseY);
+            for (int i = 0; i < numChanged * 2; i += 2) {
+                ButtonState state = STATES[changed[i + 1]];
+                if (changed[i] < InputRecorder.KEYS.length) {
+                    input.setState(InputRecorder.KEYS[changed[i]], state);
+                } else {
+                    input.setState(InputRecorder.BUTTONS[changed[i] - InputRecorder.KEYS.length], state);
+                }
+            }
+            updates++;
+            return true;
+        } catch (EOFException e) {
+            return false;
+        } catch (IOException e) {
+            throw new BagelError("Error reading input log: " + filename, e);
+        }
+    }
+
+    /**
+     * Close the input log.
+     */
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new BagelError("Error closing input log: " + filename, e);
+        }
+    }
+}
@@ -139,7 +139,7 @@ class InternalFont {
                 } else {
                     STBTruetype.stbtt_GetBakedQuad(chars, tex.w, tex.h, c - FIRST_CHAR, fx, fy, quad, true);
                     options.setSection(quad.s0() * tex.w, quad.t0() * tex.h, (quad.s1() - quad.s0()) * tex.w, (quad.t1() - quad.t0()) * tex.h);
-                    Window.get().submitRenderJob(options.toRenderInfo(tex, quad.x0(), quad.y0()));
+                    Window.get().submitRenderJob(tex, quad.x0(), quad.y0(), options);
                 }
             }
         }
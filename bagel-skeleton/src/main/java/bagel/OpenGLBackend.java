@@ -0,0 +1,295 @@
+package bagel;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.glfw.GLFWErrorCallback;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.lwjgl.glfw.Callbacks.glfwFreeCallbacks;
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.*;
+import static org.lwjgl.opengl.GL14.glBlendFuncSeparate;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Shows the window on screen with GLFW and draws it with OpenGL.
+ */
+class OpenGLBackend extends RenderBackend {
+    private static boolean glfwInitialised = false;
+
+    private long hWindow;
+
+    /**
+     * Useful utility to restart the JVM automatically with -XstartOnFirstThread argument on MacOSX as required by GLFW.
+     * Method originally written by <b>Kappa</b> on the Java-Gaming forums. This code was from shared code snippet which
+     * was copied from http://www.java-gaming.org/topics/starting-jvm-on-mac-with-xstartonfirstthread-programmatically/37697/view.html
+     *
+     * Apple's fault. Sorry.
+     */
+    private static void checkForXstartOnFirstThread() {
+        // get current jvm process pid
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        // get environment variable on whether XstartOnFirstThread is enabled
+        String env = System.getenv("JAVA_STARTED_ON_FIRST_THREAD_" + pid);
+
+        // if environment variable is "1" then XstartOnFirstThread is enabled
+        if (env == null || !env.equals("1")) {
+            // restart jvm with -XstartOnFirstThread
+            String separator = System.getProperty("file.separator");
+            String classpath = System.getProperty("java.class.path");
+            String mainClass = System.getenv("JAVA_MAIN_CLASS_" + pid);
+            String jvmPath = System.getProperty("java.home") + separator + "bin" + separator + "java";
+
+            if (mainClass == null) {
+                StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+                StackTraceElement main = stack[stack.length - 1];
+                mainClass = main.getClassName();
+            }
+
+            List<String> inputArguments = ManagementFactory.getRuntimeMXBean().getInputArguments();
+
+            List<String> jvmArgs = new ArrayList<>();
+
+            jvmArgs.add(jvmPath);
+            jvmArgs.add("-XstartOnFirstThread");
+            jvmArgs.addAll(inputArguments);
+            jvmArgs.add("-cp");
+            jvmArgs.add(classpath);
+            jvmArgs.add(mainClass);
+
+            try {
+                ProcessBuilder processBuilder = new ProcessBuilder(jvmArgs);
+                processBuilder.redirectErrorStream(true);
+                Process process = processBuilder.start();
+
+                InputStream is = process.getInputStream();
+                InputStreamReader isr = new InputStreamReader(is);
+                BufferedReader br = new BufferedReader(isr);
+
+                String line;
+
+                while ((line = br.readLine()) != null)
+                    System.out.println(line);
+
+                process.waitFor();
+                System.exit(process.exitValue());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            System.exit(-1);
+        }
+    }
+
+    /**
+     * Initialise GLFW, the first time a window is opened rather than when the game is loaded, so that nothing needs a
+     * display until it opens a window.
+     */
+    private static void initialiseGlfw() {
+        if (glfwInitialised) {
+            return;
+        }
+
+        // Check that we won't fall apart on OS X
+        if (System.getProperty("os.name").toLowerCase().startsWith("mac os x")) {
+            checkForXstartOnFirstThread();
+        }
+
+        if (!glfwInit()) {
+            throw new BagelError("Failed to initialise LWJGL");
+        }
+        glfwInitialised = true;
+
+        glfwDefaultWindowHints();
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
+        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+        glfwWindowHint(GLFW_RESIZABLE, GLFW_FALSE);
+        glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+        glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE);
+        // This one's important for Hi-DPI
+        glfwWindowHint(GLFW_SCALE_TO_MONITOR, GLFW_TRUE);
+    }
+
+    @Override
+    void open(int width, int height, String title) {
+        initialiseGlfw();
+        hWindow = GLFW.glfwCreateWindow(width, height, title, MemoryUtil.NULL, MemoryUtil.NULL);
+        if (hWindow == MemoryUtil.NULL) {
+            throw new BagelError("Failed to create GLFW window");
+        }
+
+        glfwMakeContextCurrent(hWindow);
+
+        GL.createCapabilities();
+        glEnable(GL_CULL_FACE);
+        glEnable(GL_BLEND);
+        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+
+        glfwSwapInterval(1);
+        glfwShowWindow(hWindow);
+    }
+
+    @Override
+    void setInputHandlers(Input input) {
+        glfwSetKeyCallback(hWindow, (window, key, scancode, action, mode) -> input.keyboardEvent(key, action));
+        glfwSetCursorPosCallback(hWindow, input::cursorEvent);
+        glfwSetMouseButtonCallback(hWindow, (window, button, action, mods) -> input.mouseEvent(button, action));
+    }
+
+    @Override
+    boolean isClosing() {
+        return glfwWindowShouldClose(hWindow);
+    }
+
+    @Override
+    void requestClose() {
+        glfwSetWindowShouldClose(hWindow, true);
+    }
+
+    @Override
+    void setVsync(boolean vsync) {
+        glfwSwapInterval(vsync ? 1 : 0);
+    }
+
+    @Override
+    int[] getFramebufferSize() {
+        int[] width = new int[1];
+        int[] height = new int[1];
+        glfwGetFramebufferSize(hWindow, width, height);
+        return new int[] {width[0], height[0]};
+    }
+
+    @Override
+    void pollEvents() {
+        glfwPollEvents();
+    }
+
+    @Override
+    void beginFrame(float r, float g, float b) {
+        glClearColor(r, g, b, 1.0f);
+        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+    }
+
+    @Override
+    void render(RenderInfo job) {
+        Shader shader = job.shader;
+        if (shader == null) {
+            shader = job.tex.premultiplied ? DefaultShader.getPremultiplied() : DefaultShader.get();
+        }
+        shader.bind();
+        shader.render(job);
+    }
+
+    @Override
+    void flush() {
+        Shader.flushCurrent();
+    }
+
+    @Override
+    void endFrame() {
+        glfwSwapBuffers(hWindow);
+    }
+
+    @Override
+    void close() {
+        glfwFreeCallbacks(hWindow);
+        glfwDestroyWindow(hWindow);
+
+        glfwTerminate();
+        glfwInitialised = false;
+        Optional.ofNullable(glfwSetErrorCallback(null))
+                .ifPresent(GLFWErrorCallback::free);
+    }
+
+    @Override
+    int createTexture(int w, int h, int components, ByteBuffer pixels) {
+        // GL stuff: see https://github.com/LWJGL/lwjgl3/blob/18975883e844d9dc53874836ec45257da13085d9/modules/samples/src/test/java/org/lwjgl/demo/stb/Image.java#L244
+        int texId = glGenTextures();
+        Texture.bindTexture(texId);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_BASE_LEVEL, 0);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, 0);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+
+        int format = GL_RGBA;
+
+        if (components == 3) {
+            // Sorry. I know this makes no sense. See above link.
+            if ((w & 3) != 0) {
+                glPixelStorei(GL_UNPACK_ALIGNMENT, 2 - (w & 1));
+            }
+            format = GL_RGB;
+        }
+
+        glTexImage2D(GL_TEXTURE_2D, 0, format, w, h, 0, format, GL_UNSIGNED_BYTE, pixels);
+        return texId;
+    }
+
+    @Override
+    void deleteTexture(int textureId) {
+        glDeleteTextures(textureId);
+    }
+
+    @Override
+    int createLayer(Texture texture) {
+        int framebuffer = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, framebuffer);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, texture.id(), 0);
+        int status = glCheckFramebufferStatus(GL_FRAMEBUFFER);
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+        if (status != GL_FRAMEBUFFER_COMPLETE) {
+            glDeleteFramebuffers(framebuffer);
+            throw new BagelError("Failed to create render layer framebuffer: status " + status);
+        }
+        return framebuffer;
+    }
+
+    @Override
+    void redrawLayer(int layerId, Texture texture, int left, int top, int right, int bottom, RenderQueue queue) {
+        // Nothing queued by the window's shaders may be drawn into the layer
+        Shader.unbindCurrent();
+        int[] viewport = new int[4];
+        glGetIntegerv(GL_VIEWPORT, viewport);
+        glBindFramebuffer(GL_FRAMEBUFFER, layerId);
+        glViewport(0, 0, texture.w, texture.h);
+
+        // The layer is drawn upside down so its rows are stored top first, so y needs no flipping here
+        glEnable(GL_SCISSOR_TEST);
+        glScissor(left, top, right - left, bottom - top);
+        glClearColor(0, 0, 0, 0);
+        glClear(GL_COLOR_BUFFER_BIT);
+
+        DefaultShader.get().setFlipped(true);
+        // Flipping turns the quads the other way round, which would get them culled
+        glFrontFace(GL_CW);
+        // Keep the layer's colours multiplied by its alpha, so drawing it blends the same as drawing its images did
+        glBlendFuncSeparate(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA, GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+        queue.renderAll(this);
+
+        DefaultShader.get().setFlipped(false);
+        Shader.unbindCurrent();
+        glFrontFace(GL_CCW);
+        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        glDisable(GL_SCISSOR_TEST);
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+        glViewport(viewport[0], viewport[1], viewport[2], viewport[3]);
+    }
+
+    @Override
+    void deleteLayer(int layerId) {
+        glDeleteFramebuffers(layerId);
+    }
+}
@@ -0,0 +1,263 @@
+package bagel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The commands of one frame recorded by a {@link RecordingBackend}, stored as flat arrays of numbers.
+ *
+ * Each command has a type, a texture id and a shader id (0 for the default shader), and these floats:
+ * {@link #X}, {@link #Y}, {@link #WIDTH}, {@link #HEIGHT} and {@link #ROTATION} place the image (centred at (x, y),
+ * with width and height already scaled); {@link #SECTION_LEFT} to {@link #SECTION_BOTTOM} are the part of the
+ * texture drawn, in texture coordinates from 0 to 1 of the whole texture (so images packed into one atlas differ);
+ * and {@link #RED} to {@link #ALPHA} are the blend colour.
+ *
+ * {@link #BEGIN_LAYER} and {@link #END_LAYER} commands surround the commands drawn into a {@link RenderLayer}, whose
+ * texture is the layer's. The begin command's X, Y, WIDTH and HEIGHT are the rectangle redrawn, in the layer's pixels.
+ *
+ * A frame can be written to a file and compared to one, for golden file tests: see {@link #matchGolden(Path)}.
+ */
+public class RecordedFrame {
+    /** An image drawn. */
+    public static final int DRAW = 0;
+    /** The start of a redraw of a layer. */
+    public static final int BEGIN_LAYER = 1;
+    /** The end of a redraw of a layer. */
+    public static final int END_LAYER = 2;
+
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int WIDTH = 2;
+    public static final int HEIGHT = 3;
+    public static final int ROTATION = 4;
+    public static final int SECTION_LEFT = 5;
+    public static final int SECTION_TOP = 6;
+    public static final int SECTION_RIGHT = 7;
+    public static final int SECTION_BOTTOM = 8;
+    public static final int RED = 9;
+    public static final int GREEN = 10;
+    public static final int BLUE = 11;
+    public static final int ALPHA = 12;
+
+    private static final int MAGIC = 0x42474C46; // "BGLF"
+    private static final short VERSION = 1;
+    private static final int INTS_PER_COMMAND = 3;
+    private static final int FLOATS_PER_COMMAND = 13;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final String[] TYPE_NAMES = {"draw", "begin layer", "end layer"};
+    private static final String[] FLOAT_NAMES = {"x", "y", "width", "height", "rotation",
+            "section left", "section top", "section right", "section bottom", "red", "green", "blue", "alpha"};
+
+    private int[] ints = new int[INITIAL_CAPACITY * INTS_PER_COMMAND];
+    private float[] floats = new float[INITIAL_CAPACITY * FLOATS_PER_COMMAND];
+    private int numCommands = 0;
+
+    /**
+     * Returns the number of commands in the frame.
+     */
+    public int getNumCommands() {
+        return numCommands;
+    }
+
+    /**
+     * Returns the type of a command: {@link #DRAW}, {@link #BEGIN_LAYER} or {@link #END_LAYER}.
+     */
+    public int getType(int command) {
+        return ints[command * INTS_PER_COMMAND];
+    }
+
+    /**
+     * Returns the id of the texture a command draws from, or the layer's texture for a layer command.
+     */
+    public int getTexture(int command) {
+        return ints[command * INTS_PER_COMMAND + 1];
+    }
+
+    /**
+     * Returns the id of the shader a command is drawn with, 0 for the default shader.
+     */
+    public int getShader(int command) {
+        return ints[command * INTS_PER_COMMAND + 2];
+    }
+
+    /**
+     * Returns one of the floats of a command, such as {@link #X}.
+     */
+    public float get(int command, int field) {
+        return floats[command * FLOATS_PER_COMMAND + field];
+    }
+
+    /**
+     * Returns a copy of the frame, which is not changed when the original is reused.
+     */
+    public RecordedFrame copy() {
+        RecordedFrame copy = new RecordedFrame();
+        copy.ints = Arrays.copyOf(ints, numCommands * INTS_PER_COMMAND);
+        copy.floats = Arrays.copyOf(floats, numCommands * FLOATS_PER_COMMAND);
+        copy.numCommands = numCommands;
+        return copy;
+    }
+
+    /**
+     * Record a rendering job.
+     */
+    void addDraw(RenderInfo job) {
+        Texture tex = job.tex;
+        float uSize = tex.uMax - tex.uMin;
+        float vSize = tex.vMax - tex.vMin;
+        int floatIndex = add(DRAW, tex.id(), job.shader != null ? job.shader.sortId + 1 : 0);
+        floats[floatIndex + X] = job.x;
+        floats[floatIndex + Y] = job.y;
+        floats[floatIndex + WIDTH] = tex.w * job.xScale;
+        floats[floatIndex + HEIGHT] = tex.h * job.yScale;
+        floats[floatIndex + ROTATION] = job.rotation;
+        floats[floatIndex + SECTION_LEFT] = tex.uMin + job.xOffset * uSize;
+        floats[floatIndex + SECTION_TOP] = tex.vMin + job.yOffset * vSize;
+        floats[floatIndex + SECTION_RIGHT] = tex.uMin + job.xMax * uSize;
+        floats[floatIndex + SECTION_BOTTOM] = tex.vMin + job.yMax * vSize;
+        floats[floatIndex + RED] = job.rBlend;
+        floats[floatIndex + GREEN] = job.gBlend;
+        floats[floatIndex + BLUE] = job.bBlend;
+        floats[floatIndex + ALPHA] = job.aBlend;
+    }
+
+    /**
+     * Record the start or end of a redraw of a layer. Only the start has a rectangle.
+     */
+    void addLayer(int type, int texture, int left, int top, int right, int bottom) {
+        int floatIndex = add(type, texture, 0);
+        floats[floatIndex + X] = left;
+        floats[floatIndex + Y] = top;
+        floats[floatIndex + WIDTH] = right - left;
+        floats[floatIndex + HEIGHT] = bottom - top;
+    }
+
+    /**
+     * Remove every command, keeping the arrays for the next frame.
+     */
+    void clear() {
+        numCommands = 0;
+    }
+
+    /**
+     * Add a command with every float 0, returning the index of its first float.
+     */
+    private int add(int type, int texture, int shader) {
+        if ((numCommands + 1) * INTS_PER_COMMAND > ints.length) {
+            ints = Arrays.copyOf(ints, ints.length * 2);
+            floats = Arrays.copyOf(floats, floats.length * 2);
+        }
+        int intIndex = numCommands * INTS_PER_COMMAND;
+        ints[intIndex] = type;
+        ints[intIndex + 1] = texture;
+        ints[intIndex + 2] = shader;
+        int floatIndex = numCommands * FLOATS_PER_COMMAND;
+        Arrays.fill(floats, floatIndex, floatIndex + FLOATS_PER_COMMAND, 0);
+        numCommands++;
+        return floatIndex;
+    }
+
+    /**
+     * Write the frame to a file.
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(numCommands);
+            for (int i = 0; i < numCommands * INTS_PER_COMMAND; i++) {
+                out.writeInt(ints[i]);
+            }
+            for (int i = 0; i < numCommands * FLOATS_PER_COMMAND; i++) {
+                out.writeFloat(floats[i]);
+            }
+        }
+    }
+
+    /**
+     * Read a frame written by {@link #write(Path)}.
+     * @throws BagelError if the file is not a recorded frame
+     */
+    public static RecordedFrame read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new BagelError(file + " is not a recorded frame of version " + VERSION);
+            }
+            RecordedFrame frame = new RecordedFrame();
+            frame.numCommands = in.readInt();
+            frame.ints = new int[frame.numCommands * INTS_PER_COMMAND];
+            frame.floats = new float[frame.numCommands * FLOATS_PER_COMMAND];
+            for (int i = 0; i < frame.ints.length; i++) {
+                frame.ints[i] = in.readInt();
+            }
+            for (int i = 0; i < frame.floats.length; i++) {
+                frame.floats[i] = in.readFloat();
+            }
+            return frame;
+        }
+    }
+
+    /**
+     * Compare the frame to a golden file written by {@link #write(Path)}. If the golden file doesn't exist yet, the
+     * frame is written to it, to be compared against from then on.
+     * @return null if the frame is the same as the golden file's, otherwise the first difference
+     */
+    public String matchGolden(Path golden) throws IOException {
+        if (!Files.exists(golden)) {
+            write(golden);
+            return null;
+        }
+        return findDifference(read(golden));
+    }
+
+    /**
+     * Returns null if the frames have exactly the same commands, otherwise a description of the first difference.
+     */
+    public String findDifference(RecordedFrame expected) {
+        for (int command = 0; command < Math.min(numCommands, expected.numCommands); command++) {
+            if (getType(command) != expected.getType(command) || getTexture(command) != expected.getTexture(command)
+                    || getShader(command) != expected.getShader(command)) {
+                return "command " + command + " is " + describe(command) + ", expected "
+                        + expected.describe(command);
+            }
+            for (int field = 0; field < FLOATS_PER_COMMAND; field++) {
+                if (Float.compare(get(command, field), expected.get(command, field)) != 0) {
+                    return "command " + command + " (" + describe(command) + ") has " + FLOAT_NAMES[field] + " "
+                            + get(command, field) + ", expected " + expected.get(command, field);
+                }
+            }
+        }
+        if (numCommands != expected.numCommands) {
+            return numCommands + " commands, expected " + expected.numCommands;
+        }
+        return null;
+    }
+
+    private String describe(int command) {
+        return TYPE_NAMES[getType(command)] + " of texture " + getTexture(command) + " with shader "
+                + getShader(command);
+    }
+
+    @Override
+    public boolean equals(Object rhs) {
+        return rhs instanceof RecordedFrame && findDifference((RecordedFrame) rhs) == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = numCommands;
+        for (int i = 0; i < numCommands * INTS_PER_COMMAND; i++) {
+            hash = 31 * hash + ints[i];
+        }
+        for (int i = 0; i < numCommands * FLOATS_PER_COMMAND; i++) {
+            hash = 31 * hash + Float.floatToIntBits(floats[i]);
+        }
+        return hash;
+    }
+}
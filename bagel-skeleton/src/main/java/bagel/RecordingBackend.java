@@ -0,0 +1,146 @@
+package bagel;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A backend with no screen, GLFW or OpenGL, which records the commands of each frame into a {@link RecordedFrame}
+ * instead of drawing them. Games can run with it on machines without a display, to compare their frames to golden
+ * files or to measure everything up to the point where a frame would be drawn.
+ *
+ * Textures are given ids in the order they are created, so a game that loads its images in the same order records the
+ * same ids every time. There is no input.
+ */
+public class RecordingBackend extends RenderBackend {
+    private final int maxFrames;
+    private RecordedFrame recording = new RecordedFrame();
+    private RecordedFrame lastFrame = new RecordedFrame();
+    private int numFrames = 0;
+    private long numCommands = 0;
+    private boolean closing = false;
+    private int[] framebufferSize;
+    private int nextTextureId = 1;
+    private int nextLayerId = 1;
+
+    /**
+     * Create a backend that records frames until the window is closed.
+     */
+    public RecordingBackend() {
+        this(0);
+    }
+
+    /**
+     * Create a backend that closes the window after maxFrames frames, or never if maxFrames is 0.
+     */
+    public RecordingBackend(int maxFrames) {
+        this.maxFrames = maxFrames;
+    }
+
+    /**
+     * Returns the number of frames recorded.
+     */
+    public int getNumFrames() {
+        return numFrames;
+    }
+
+    /**
+     * Returns the number of commands recorded in every frame so far.
+     */
+    public long getNumCommands() {
+        return numCommands;
+    }
+
+    /**
+     * Returns the last frame recorded. It is reused for the frame after the next one, so {@link RecordedFrame#copy()}
+     * it to keep it.
+     */
+    public RecordedFrame getLastFrame() {
+        return lastFrame;
+    }
+
+    @Override
+    void open(int width, int height, String title) {
+        framebufferSize = new int[] {width, height};
+    }
+
+    @Override
+    void setInputHandlers(Input input) {
+    }
+
+    @Override
+    boolean isClosing() {
+        return closing || (maxFrames > 0 && numFrames >= maxFrames);
+    }
+
+    @Override
+    void requestClose() {
+        closing = true;
+    }
+
+    @Override
+    void setVsync(boolean vsync) {
+    }
+
+    @Override
+    int[] getFramebufferSize() {
+        return framebufferSize.clone();
+    }
+
+    @Override
+    void pollEvents() {
+    }
+
+    @Override
+    void beginFrame(float r, float g, float b) {
+    }
+
+    @Override
+    void render(RenderInfo job) {
+        recording.addDraw(job);
+    }
+
+    @Override
+    void flush() {
+    }
+
+    /**
+     * Commands recorded between frames (such as layers drawn before the game starts) belong to the next frame.
+     */
+    @Override
+    void endFrame() {
+        RecordedFrame finished = recording;
+        recording = lastFrame;
+        lastFrame = finished;
+        recording.clear();
+        numCommands += finished.getNumCommands();
+        numFrames++;
+    }
+
+    @Override
+    void close() {
+    }
+
+    @Override
+    int createTexture(int w, int h, int components, ByteBuffer pixels) {
+        return nextTextureId++;
+    }
+
+    @Override
+    void deleteTexture(int textureId) {
+    }
+
+    @Override
+    int createLayer(Texture texture) {
+        return nextLayerId++;
+    }
+
+    @Override
+    void redrawLayer(int layerId, Texture texture, int left, int top, int right, int bottom, RenderQueue queue) {
+        recording.addLayer(RecordedFrame.BEGIN_LAYER, texture.id(), left, top, right, bottom);
+        queue.renderAll(this);
+        recording.addLayer(RecordedFrame.END_LAYER, texture.id(), 0, 0, 0, 0);
+    }
+
+    @Override
+    void deleteLayer(int layerId) {
+    }
+}
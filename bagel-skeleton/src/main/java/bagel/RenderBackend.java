@@ -0,0 +1,110 @@
+package bagel;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Where a window's frames go: to the screen with OpenGL ({@link #openGL()}, the default), or somewhere else, such as
+ * into memory with a {@link RecordingBackend}. Give one to {@link AbstractGame#AbstractGame(int, int, String,
+ * RenderBackend)} to choose it.
+ *
+ * A backend only needs to do what it is asked below {@link Window}: it is given every rendering job once the frame's
+ * jobs are ready, and creates the textures (and render layers) that the jobs draw from.
+ */
+public abstract class RenderBackend {
+    /**
+     * A backend that shows the window on screen and draws it with OpenGL.
+     */
+    public static RenderBackend openGL() {
+        return new OpenGLBackend();
+    }
+
+    /**
+     * Open the window.
+     */
+    abstract void open(int width, int height, String title);
+
+    /**
+     * Send the window's keyboard and mouse events to input.
+     */
+    abstract void setInputHandlers(Input input);
+
+    /**
+     * Whether the window has been asked to close.
+     */
+    abstract boolean isClosing();
+
+    /**
+     * Ask the window to close.
+     */
+    abstract void requestClose();
+
+    /**
+     * Whether to wait for the screen to refresh before showing each frame.
+     */
+    abstract void setVsync(boolean vsync);
+
+    /**
+     * Find the size of the frames drawn in pixels, which may be larger than the window on a high DPI monitor.
+     * Returns {width, height}.
+     */
+    abstract int[] getFramebufferSize();
+
+    /**
+     * Handle the window's events, passing them to the input.
+     */
+    abstract void pollEvents();
+
+    /**
+     * Start a frame, cleared to the given colour.
+     */
+    abstract void beginFrame(float r, float g, float b);
+
+    /**
+     * Draw (or queue for drawing) a rendering job. A job with no shader uses the default one.
+     */
+    abstract void render(RenderInfo job);
+
+    /**
+     * Draw anything {@link #render(RenderInfo)} has queued up.
+     */
+    abstract void flush();
+
+    /**
+     * Finish the frame and show it.
+     */
+    abstract void endFrame();
+
+    /**
+     * Close the window and free everything the backend holds. Textures are destroyed before this.
+     */
+    abstract void close();
+
+    /**
+     * Create a texture from pixels with the given number of components (3 for RGB, 4 for RGBA), or an RGBA texture
+     * with undefined contents if pixels is null. Returns the texture's id.
+     */
+    abstract int createTexture(int w, int h, int components, ByteBuffer pixels);
+
+    /**
+     * Free a texture created by {@link #createTexture(int, int, int, ByteBuffer)}.
+     */
+    abstract void deleteTexture(int textureId);
+
+    /**
+     * Make a texture into a render layer that jobs can be drawn into. Returns the layer's id.
+     */
+    abstract int createLayer(Texture texture);
+
+    /**
+     * Clear the rectangle from (left, top) to (right, bottom) of a layer's texture (in its pixels, from its top-left)
+     * to transparent, and draw the queue's jobs into that rectangle with colours multiplied by their alpha. The queue is
+     * emptied.
+     */
+    abstract void redrawLayer(int layerId, Texture texture, int left, int top, int right, int bottom,
+                              RenderQueue queue);
+
+    /**
+     * Free a layer created by {@link #createLayer(Texture)}, but not its texture.
+     */
+    abstract void deleteLayer(int layerId);
+}
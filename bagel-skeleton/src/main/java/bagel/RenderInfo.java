@@ -2,31 +2,35 @@ package bagel;
 
 /**
  * Represents information about a particular rendering job.
+ *
+ * Jobs are pooled by the Window and overwritten every frame, so a RenderInfo must not be kept after it is rendered.
  */
 class RenderInfo {
-    final Texture tex;
-    final float x;
-    final float y;
-    final float xOffset;
-    final float yOffset;
-    final float xMax;
-    final float yMax;
-    final float xScale;
-    final float yScale;
-    final float rotation;
-    final float rBlend;
-    final float gBlend;
-    final float bBlend;
-    final float aBlend;
-    final Shader shader;
+    Texture tex;
+    float x;
+    float y;
+    float xOffset;
+    float yOffset;
+    float xMax;
+    float yMax;
+    float xScale;
+    float yScale;
+    float rotation;
+    float rBlend;
+    float gBlend;
+    float bBlend;
+    float aBlend;
+    // null for the default shader, which the backend picks
+    Shader shader;
+    int layer;
 
-    RenderInfo(Texture tex,
-               float x, float y,
-               float xOffset, float yOffset, float xMax, float yMax,
-               float xScale, float yScale,
-               float rotation,
-               float rBlend, float gBlend, float bBlend, float aBlend,
-               Shader shader) {
+    void set(Texture tex,
+             float x, float y,
+             float xOffset, float yOffset, float xMax, float yMax,
+             float xScale, float yScale,
+             float rotation,
+             float rBlend, float gBlend, float bBlend, float aBlend,
+             Shader shader, int layer) {
         this.tex = tex;
         this.x = x;
         this.y = y;
@@ -42,12 +46,7 @@ class RenderInfo {
         this.bBlend = bBlend;
         this.aBlend = aBlend;
         this.shader = shader;
-    }
-
-    void render() {
-        tex.bind();
-        shader.bind();
-        shader.render(this);
+        this.layer = layer;
     }
 
     @Override
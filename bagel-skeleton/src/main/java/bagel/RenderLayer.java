@@ -0,0 +1,87 @@
+package bagel;
+
+/**
+ * A layer of the window that keeps what was drawn into it between frames, for things that rarely change.
+ *
+ * Drawing into the layer (with {@link #redraw(Runnable)}) renders the images drawn straight away into a texture the
+ * size of the window, and every frame the whole layer is drawn with {@link #draw()} as a single image. A layer only
+ * needs to be redrawn when something in it changes, and {@link #redraw(double, double, double, double, Runnable)}
+ * redraws just the part that changed.
+ *
+ * A layer can't be drawn into itself.
+ */
+public class RenderLayer {
+    private final int width;
+    private final int height;
+    private final Texture texture;
+    private final int layerId;
+    private final RenderQueue queue = new RenderQueue();
+    private final DrawOptions drawOptions;
+
+    /**
+     * Create an empty layer covering the whole window.
+     */
+    public RenderLayer() {
+        Window window = Window.get();
+        width = Window.getWidth();
+        height = Window.getHeight();
+        int[] pixels = window.getBackend().getFramebufferSize();
+        texture = Texture.forLayer(pixels[0], pixels[1]);
+        try {
+            layerId = window.getBackend().createLayer(texture);
+        } catch (BagelError e) {
+            texture.destroy();
+            throw e;
+        }
+
+        // The texture has as many pixels as the framebuffer, so it's drawn scaled back down to the window's size
+        drawOptions = new DrawOptions().setScale((double) width / pixels[0], (double) height / pixels[1]);
+        redraw(() -> {});
+    }
+
+    /**
+     * Clear the whole layer and draw into it. Every image drawn (and anything else submitted, such as with
+     * {@link Drawing}) while drawing runs goes into the layer instead of the window.
+     */
+    public void redraw(Runnable drawing) {
+        redraw(0, 0, width, height, drawing);
+    }
+
+    /**
+     * Clear the rectangle with its top-left at (x, y) and draw into it, as in {@link #redraw(Runnable)}. Nothing
+     * outside the rectangle is cleared or drawn, so everything that overlaps the rectangle must be drawn again. The
+     * rectangle is rounded out to whole pixels.
+     */
+    public void redraw(double x, double y, double width, double height, Runnable drawing) {
+        Window window = Window.get();
+        RenderQueue previous = window.redirectRenderJobs(queue);
+        try {
+            drawing.run();
+        } finally {
+            window.redirectRenderJobs(previous);
+        }
+
+        double xScale = (double) texture.w / this.width;
+        double yScale = (double) texture.h / this.height;
+        int left = (int) Math.floor(x * xScale);
+        int top = (int) Math.floor(y * yScale);
+        int right = (int) Math.ceil((x + width) * xScale);
+        int bottom = (int) Math.ceil((y + height) * yScale);
+        window.getBackend().redrawLayer(layerId, texture, left, top, right, bottom, queue);
+    }
+
+    /**
+     * Draw the whole layer onto the window, in order with the other images drawn this frame.
+     */
+    public void draw() {
+        Window.get().submitRenderJob(texture, width / 2.0f, height / 2.0f, drawOptions);
+    }
+
+    /**
+     * Free the layer's texture. The layer can't be used afterwards.
+     */
+    public void destroy() {
+        Window.get().getBackend().deleteLayer(layerId);
+        texture.destroy();
+    }
+}
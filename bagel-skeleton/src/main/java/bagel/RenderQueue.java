@@ -0,0 +1,163 @@
+package bagel;
+
+import java.util.Arrays;
+
+/**
+ * The rendering jobs submitted during a frame, in the order they were submitted.
+ *
+ * The RenderInfo objects are reused from frame to frame: a job is written into the next pooled RenderInfo, and new
+ * ones are only allocated when a frame submits more jobs than any frame before it.
+ *
+ * A sorted queue renders its jobs ordered by (layer, shader, texture) instead, keeping jobs with the same key in the
+ * order they were submitted, so that every run of jobs sharing a shader and texture is drawn with as few state changes
+ * as possible. The jobs are sorted with an LSD radix sort of a 64-bit key per job, one byte at a time, skipping the
+ * bytes that are the same in every key (usually all but one or two).
+ */
+class RenderQueue {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    private RenderInfo[] jobs = new RenderInfo[0];
+    private int size = 0;
+
+    private boolean sorted = false;
+    // The keys of the jobs and the order to render them in, and the same again to radix sort into
+    private long[] keys = new long[0];
+    private int[] order = new int[0];
+    private long[] sortedKeys = new long[0];
+    private int[] sortedOrder = new int[0];
+    private final int[] digitCounts = new int[RADIX];
+
+    /**
+     * Whether to render the jobs sorted by layer, shader and texture instead of in the order they were submitted.
+     */
+    void setSorted(boolean sorted) {
+        this.sorted = sorted;
+    }
+
+    /**
+     * Queue a job drawing tex at (x, y) with the given options.
+     */
+    void submit(Texture tex, float x, float y, DrawOptions options) {
+        if (size == jobs.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, jobs.length * 2);
+            jobs = Arrays.copyOf(jobs, capacity);
+            for (int i = size; i < capacity; i++) {
+                jobs[i] = new RenderInfo();
+            }
+        }
+        options.writeTo(jobs[size++], tex, x, y);
+        FrameProfiler.count(FrameProfiler.Counter.RENDER_JOBS);
+    }
+
+    /**
+     * The number of jobs submitted since the queue was last rendered.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Empty the queue without rendering anything.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Give every queued job to the backend, have it draw anything it is still holding on to, and empty the queue.
+     */
+    void renderAll(RenderBackend backend) {
+        if (sorted && size > 1) {
+            sort();
+            for (int i = 0; i < size; i++) {
+                backend.render(jobs[order[i]]);
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                backend.render(jobs[i]);
+            }
+        }
+        backend.flush();
+        size = 0;
+    }
+
+    /**
+     * Put the indices of the jobs into order, and count how many state changes that saves.
+     */
+    private void sort() {
+        if (keys.length < size) {
+            keys = new long[jobs.length];
+            order = new int[jobs.length];
+            sortedKeys = new long[jobs.length];
+            sortedOrder = new int[jobs.length];
+        }
+
+        // The layer's sign bit is flipped so that negative layers come first; the lower 16 bits of the shader and
+        // texture ids are enough to group them, and jobs that share a key by chance still keep their order. The
+        // default shader (null) sorts first
+        long differentBits = 0;
+        for (int i = 0; i < size; i++) {
+            RenderInfo job = jobs[i];
+            int shaderId = job.shader != null ? job.shader.sortId + 1 : 0;
+            keys[i] = (long) (job.layer ^ Integer.MIN_VALUE) << 32
+                    | (long) (shaderId & 0xFFFF) << 16
+                    | (job.tex.id() & 0xFFFF);
+            order[i] = i;
+            differentBits |= keys[i] ^ keys[0];
+        }
+
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            if (((differentBits >>> shift) & (RADIX - 1)) != 0) {
+                sortByDigit(shift);
+            }
+        }
+
+        FrameProfiler.count(FrameProfiler.Counter.STATE_CHANGES_SAVED,
+                countStateChanges(false) - countStateChanges(true));
+    }
+
+    /**
+     * One stable counting sort pass of the radix sort, by the byte of the keys starting at bit shift.
+     */
+    private void sortByDigit(int shift) {
+        Arrays.fill(digitCounts, 0);
+        for (int i = 0; i < size; i++) {
+            digitCounts[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+        }
+        int start = 0;
+        for (int digit = 0; digit < RADIX; digit++) {
+            int count = digitCounts[digit];
+            digitCounts[digit] = start;
+            start += count;
+        }
+        for (int i = 0; i < size; i++) {
+            int to = digitCounts[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+            sortedKeys[to] = keys[i];
+            sortedOrder[to] = order[i];
+        }
+
+        long[] swapKeys = keys;
+        keys = sortedKeys;
+        sortedKeys = swapKeys;
+        int[] swapOrder = order;
+        order = sortedOrder;
+        sortedOrder = swapOrder;
+    }
+
+    /**
+     * Count how many times the shader or texture changes from one job to the next, in sorted or submission order.
+     */
+    private int countStateChanges(boolean inSortedOrder) {
+        int changes = 0;
+        for (int i = 1; i < size; i++) {
+            RenderInfo previous = jobs[inSortedOrder ? order[i - 1] : i - 1];
+            RenderInfo job = jobs[inSortedOrder ? order[i] : i];
+            if (job.shader != previous.shader || !job.tex.equals(previous.tex)) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+}
@@ -28,19 +28,56 @@ public abstract class Shader {
     };
 
     private static Shader current;
+    private static int nextSortId = 0;
+
+    // Groups the jobs using this shader together when the render queue is sorted
+    final int sortId = nextSortId++;
 
     public void bind() {
         if (current != this) {
+            // Anything the previous shader has queued up must be drawn with that shader
+            flushCurrent();
             current = this;
             bindInternal();
+            FrameProfiler.count(FrameProfiler.Counter.SHADER_BINDS);
         }
     }
 
+    /**
+     * Draw anything the currently bound shader has queued up.
+     */
+    static void flushCurrent() {
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    /**
+     * Draw anything the currently bound shader has queued up, and forget which shader is bound, so the next shader
+     * used sets all of its state up again even if it was the last one bound.
+     */
+    static void unbindCurrent() {
+        flushCurrent();
+        current = null;
+    }
+
     protected abstract void bindInternal();
+
+    /**
+     * Render (or queue for rendering) the job. The shader is responsible for binding the job's texture.
+     */
     abstract void render(RenderInfo info);
 
+    /**
+     * Draw any jobs that {@link #render(RenderInfo)} has queued but not drawn yet. Only called while this shader is
+     * bound.
+     */
+    void flush() {
+    }
+
     protected static void drawElements() {
         GL11.glDrawElements(GL11.GL_TRIANGLES, QUAD_INDICES.length, GL_UNSIGNED_BYTE, 0);
+        FrameProfiler.count(FrameProfiler.Counter.DRAW_CALLS);
     }
 
     protected static int generateShaderProgram(String vertexShaderName, String fragmentShaderName) {
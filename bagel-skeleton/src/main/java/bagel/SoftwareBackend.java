@@ -0,0 +1,497 @@
+package bagel;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.stb.STBImageWrite;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * A backend with no screen, GLFW or OpenGL, which draws every frame on the CPU into an RGBA framebuffer outside the
+ * Java heap. Finished frames can be written out as PNG files or appended to a stream of raw RGBA frames (which tools
+ * such as ffmpeg can turn into a video with {@code -f rawvideo -pix_fmt rgba -s WIDTHxHEIGHT}).
+ *
+ * Images are drawn the way the default shader draws them: with their scale, rotation, section and blend colour, the
+ * nearest texel to each pixel's centre, and the same blending as the OpenGL backend. Custom shaders can't be run on
+ * the CPU, so their jobs are drawn with the default shader too. The framebuffer is split into square tiles, and the
+ * tiles are drawn in parallel, each with the jobs whose bounds overlap it.
+ *
+ * The framebuffer can be scaled from the window's size, like a high DPI screen, to draw larger or smaller frames
+ * (such as thumbnails) without the game knowing. There is no input.
+ */
+public class SoftwareBackend extends RenderBackend {
+    private static final int TILE_SIZE = 64;
+    private static final int INITIAL_CAPACITY = 64;
+    // x, y, width, height, rotation, region (uMin, vMin, uSize, vSize), section (left, top, right, bottom),
+    // blend (r, g, b, a)
+    private static final int FLOATS_PER_JOB = 17;
+    private static final int X = 0;
+    private static final int Y = 1;
+    private static final int WIDTH = 2;
+    private static final int HEIGHT = 3;
+    private static final int ROTATION = 4;
+    private static final int REGION = 5;
+    private static final int SECTION = 9;
+    private static final int BLEND = 13;
+
+    private final double scale;
+    private final int maxFrames;
+    private Surface framebuffer;
+    private int numFrames = 0;
+    private boolean closing = false;
+    private String pngOutput;
+    private WritableByteChannel rawOutput;
+
+    // Surfaces by texture id; id 0 is never used
+    private final List<Surface> surfaces = new ArrayList<>();
+
+    // What jobs are drawn into: the framebuffer, or a layer being redrawn and the part of it being redrawn
+    private Surface target;
+    private int clipLeft;
+    private int clipTop;
+    private int clipRight;
+    private int clipBottom;
+
+    // The jobs waiting to be drawn, and the pixels they cover
+    private float[] jobs = new float[INITIAL_CAPACITY * FLOATS_PER_JOB];
+    private int[] jobTextures = new int[INITIAL_CAPACITY];
+    private int[] jobBounds = new int[INITIAL_CAPACITY * 4];
+    private int numJobs = 0;
+
+    // The jobs overlapping each tile, in order
+    private int[][] tileJobs = new int[0][];
+    private int[] tileSizes = new int[0];
+
+    /**
+     * Create a backend that draws frames at the window's size until the window is closed.
+     */
+    public SoftwareBackend() {
+        this(1, 0);
+    }
+
+    /**
+     * Create a backend whose frames are the window's size multiplied by scale, which closes the window after
+     * maxFrames frames, or never if maxFrames is 0.
+     */
+    public SoftwareBackend(double scale, int maxFrames) {
+        if (scale <= 0) {
+            throw new BagelError("Scale must be positive: " + scale);
+        }
+        this.scale = scale;
+        this.maxFrames = maxFrames;
+        surfaces.add(null);
+    }
+
+    /**
+     * Write every frame to a PNG file once it is finished, named by formatting the pattern with the frame's number
+     * (from 0), such as "frames/%05d.png". Null stops writing frames.
+     */
+    public SoftwareBackend setPngOutput(String pattern) {
+        pngOutput = pattern;
+        return this;
+    }
+
+    /**
+     * Append every frame to a stream once it is finished, as rows of RGBA bytes from the top. The stream isn't closed
+     * by the backend. Null stops writing frames.
+     */
+    public SoftwareBackend setRawOutput(OutputStream out) {
+        rawOutput = out == null ? null : Channels.newChannel(out);
+        return this;
+    }
+
+    /**
+     * Returns the number of frames drawn.
+     */
+    public int getNumFrames() {
+        return numFrames;
+    }
+
+    /**
+     * Returns the width of the frames in pixels.
+     */
+    public int getFrameWidth() {
+        return framebuffer.width;
+    }
+
+    /**
+     * Returns the height of the frames in pixels.
+     */
+    public int getFrameHeight() {
+        return framebuffer.height;
+    }
+
+    /**
+     * Write the last frame drawn to a PNG file.
+     * @throws BagelError if the file can't be written
+     */
+    public void writePng(String filename) {
+        if (!STBImageWrite.stbi_write_png(filename, framebuffer.width, framebuffer.height, 4, framebuffer.pixels,
+                framebuffer.width * 4)) {
+            throw new BagelError("Error writing frame: " + filename);
+        }
+    }
+
+    /**
+     * Write the last frame drawn to a channel as rows of RGBA bytes from the top.
+     */
+    public void writeRaw(WritableByteChannel channel) throws IOException {
+        ByteBuffer frame = framebuffer.pixels.duplicate();
+        frame.clear();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    @Override
+    void open(int width, int height, String title) {
+        framebuffer = new Surface(Math.max(1, (int) Math.round(width * scale)),
+                Math.max(1, (int) Math.round(height * scale)), false);
+        setTarget(framebuffer, 0, 0, framebuffer.width, framebuffer.height);
+
+        int tiles = ((framebuffer.width + TILE_SIZE - 1) / TILE_SIZE)
+                * ((framebuffer.height + TILE_SIZE - 1) / TILE_SIZE);
+        tileJobs = new int[tiles][INITIAL_CAPACITY];
+        tileSizes = new int[tiles];
+    }
+
+    @Override
+    void setInputHandlers(Input input) {
+    }
+
+    @Override
+    boolean isClosing() {
+        return closing || (maxFrames > 0 && numFrames >= maxFrames);
+    }
+
+    @Override
+    void requestClose() {
+        closing = true;
+    }
+
+    @Override
+    void setVsync(boolean vsync) {
+    }
+
+    @Override
+    int[] getFramebufferSize() {
+        return new int[] {framebuffer.width, framebuffer.height};
+    }
+
+    @Override
+    void pollEvents() {
+    }
+
+    @Override
+    void beginFrame(float r, float g, float b) {
+        framebuffer.fill(0, 0, framebuffer.width, framebuffer.height, toByte(r), toByte(g), toByte(b), (byte) 255);
+    }
+
+    @Override
+    void render(RenderInfo job) {
+        if (numJobs == jobTextures.length) {
+            jobs = Arrays.copyOf(jobs, jobs.length * 2);
+            jobTextures = Arrays.copyOf(jobTextures, jobTextures.length * 2);
+            jobBounds = Arrays.copyOf(jobBounds, jobBounds.length * 2);
+        }
+
+        // Jobs are in the window's coordinates, which the target may have more or fewer pixels than
+        float xScale = (float) target.width / Window.getWidth();
+        float yScale = (float) target.height / Window.getHeight();
+        Texture tex = job.tex;
+        float uSize = tex.uMax - tex.uMin;
+        float vSize = tex.vMax - tex.vMin;
+        int i = numJobs * FLOATS_PER_JOB;
+        jobs[i + X] = job.x * xScale;
+        jobs[i + Y] = job.y * yScale;
+        jobs[i + WIDTH] = tex.w * job.xScale * xScale;
+        jobs[i + HEIGHT] = tex.h * job.yScale * yScale;
+        jobs[i + ROTATION] = job.rotation;
+        jobs[i + REGION] = tex.uMin;
+        jobs[i + REGION + 1] = tex.vMin;
+        jobs[i + REGION + 2] = uSize;
+        jobs[i + REGION + 3] = vSize;
+        jobs[i + SECTION] = tex.uMin + job.xOffset * uSize;
+        jobs[i + SECTION + 1] = tex.vMin + job.yOffset * vSize;
+        jobs[i + SECTION + 2] = tex.uMin + job.xMax * uSize;
+        jobs[i + SECTION + 3] = tex.vMin + job.yMax * vSize;
+        jobs[i + BLEND] = job.rBlend;
+        jobs[i + BLEND + 1] = job.gBlend;
+        jobs[i + BLEND + 2] = job.bBlend;
+        jobs[i + BLEND + 3] = job.aBlend;
+        jobTextures[numJobs] = tex.id();
+
+        // The bounds of the rotated quad, as pixels whose centres may be inside it
+        float halfWidth = Math.abs(jobs[i + WIDTH]) / 2;
+        float halfHeight = Math.abs(jobs[i + HEIGHT]) / 2;
+        float cos = Math.abs((float) Math.cos(job.rotation));
+        float sin = Math.abs((float) Math.sin(job.rotation));
+        float xExtent = cos * halfWidth + sin * halfHeight;
+        float yExtent = sin * halfWidth + cos * halfHeight;
+        int b = numJobs * 4;
+        jobBounds[b] = Math.max(clipLeft, (int) Math.floor(jobs[i + X] - xExtent));
+        jobBounds[b + 1] = Math.max(clipTop, (int) Math.floor(jobs[i + Y] - yExtent));
+        jobBounds[b + 2] = Math.min(clipRight, (int) Math.ceil(jobs[i + X] + xExtent));
+        jobBounds[b + 3] = Math.min(clipBottom, (int) Math.ceil(jobs[i + Y] + yExtent));
+        // Jobs that can't cover a pixel are dropped
+        if (jobBounds[b] < jobBounds[b + 2] && jobBounds[b + 1] < jobBounds[b + 3] && halfWidth > 0 && halfHeight > 0
+                && jobs[i + BLEND + 3] != 0) {
+            numJobs++;
+        }
+    }
+
+    /**
+     * Draw the waiting jobs, one tile of the target at a time, with the tiles drawn in parallel.
+     */
+    @Override
+    void flush() {
+        if (numJobs == 0) {
+            return;
+        }
+        int tilesAcross = (target.width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesDown = (target.height + TILE_SIZE - 1) / TILE_SIZE;
+        if (tileSizes.length < tilesAcross * tilesDown) {
+            tileJobs = new int[tilesAcross * tilesDown][INITIAL_CAPACITY];
+            tileSizes = new int[tilesAcross * tilesDown];
+        }
+
+        Arrays.fill(tileSizes, 0);
+        for (int job = 0; job < numJobs; job++) {
+            int b = job * 4;
+            int lastTileX = (jobBounds[b + 2] - 1) / TILE_SIZE;
+            int lastTileY = (jobBounds[b + 3] - 1) / TILE_SIZE;
+            for (int tileY = jobBounds[b + 1] / TILE_SIZE; tileY <= lastTileY; tileY++) {
+                for (int tileX = jobBounds[b] / TILE_SIZE; tileX <= lastTileX; tileX++) {
+                    int tile = tileY * tilesAcross + tileX;
+                    if (tileSizes[tile] == tileJobs[tile].length) {
+                        tileJobs[tile] = Arrays.copyOf(tileJobs[tile], tileSizes[tile] * 2);
+                    }
+                    tileJobs[tile][tileSizes[tile]++] = job;
+                }
+            }
+        }
+
+        IntStream.range(0, tilesAcross * tilesDown).parallel().forEach(tile -> {
+            int left = (tile % tilesAcross) * TILE_SIZE;
+            int top = (tile / tilesAcross) * TILE_SIZE;
+            int right = Math.min(left + TILE_SIZE, target.width);
+            int bottom = Math.min(top + TILE_SIZE, target.height);
+            for (int i = 0; i < tileSizes[tile]; i++) {
+                drawJob(tileJobs[tile][i], left, top, right, bottom);
+            }
+        });
+        FrameProfiler.count(FrameProfiler.Counter.DRAW_CALLS);
+        numJobs = 0;
+    }
+
+    /**
+     * Draw the part of a job inside a tile of the target.
+     */
+    private void drawJob(int job, int tileLeft, int tileTop, int tileRight, int tileBottom) {
+        int i = job * FLOATS_PER_JOB;
+        int b = job * 4;
+        int left = Math.max(tileLeft, jobBounds[b]);
+        int top = Math.max(tileTop, jobBounds[b + 1]);
+        int right = Math.min(tileRight, jobBounds[b + 2]);
+        int bottom = Math.min(tileBottom, jobBounds[b + 3]);
+        if (left >= right || top >= bottom) {
+            return;
+        }
+
+        Surface source = surfaces.get(jobTextures[job]);
+        float width = jobs[i + WIDTH];
+        float height = jobs[i + HEIGHT];
+        float cos = (float) Math.cos(jobs[i + ROTATION]);
+        float sin = (float) Math.sin(jobs[i + ROTATION]);
+        float uMin = jobs[i + REGION];
+        float vMin = jobs[i + REGION + 1];
+        float uSize = jobs[i + REGION + 2];
+        float vSize = jobs[i + REGION + 3];
+        float sectionLeft = jobs[i + SECTION];
+        float sectionTop = jobs[i + SECTION + 1];
+        float sectionRight = jobs[i + SECTION + 2];
+        float sectionBottom = jobs[i + SECTION + 3];
+        float red = jobs[i + BLEND];
+        float green = jobs[i + BLEND + 1];
+        float blue = jobs[i + BLEND + 2];
+        float alpha = jobs[i + BLEND + 3];
+        boolean layerTarget = target != framebuffer;
+
+        // How far across (u) and down (v) the quad a pixel's centre is, from 0 to 1, moving one pixel to the right
+        float uStep = cos / width;
+        float vStep = -sin / height;
+        for (int y = top; y < bottom; y++) {
+            float dx = left + 0.5f - jobs[i + X];
+            float dy = y + 0.5f - jobs[i + Y];
+            float u = (cos * dx + sin * dy) / width + 0.5f;
+            float v = (cos * dy - sin * dx) / height + 0.5f;
+            for (int x = left; x < right; x++, u += uStep, v += vStep) {
+                if (u < 0 || u >= 1 || v < 0 || v >= 1) {
+                    continue;
+                }
+                float texU = uMin + u * uSize;
+                float texV = vMin + v * vSize;
+                if (texU < sectionLeft || texU > sectionRight || texV < sectionTop || texV > sectionBottom) {
+                    continue;
+                }
+
+                int texel = source.offset(Math.min((int) (texU * source.width), source.width - 1),
+                        Math.min((int) (texV * source.height), source.height - 1));
+                float srcAlpha = (source.pixels.get(texel + 3) & 0xFF) * alpha;
+                if (srcAlpha == 0) {
+                    continue;
+                }
+                // Premultiplied sources are added as they are; the rest are multiplied by their alpha first
+                float srcFactor = source.premultiplied ? 1 : srcAlpha / 255;
+                float dstFactor = 1 - srcAlpha / 255;
+                int pixel = target.offset(x, y);
+                blend(pixel, (source.pixels.get(texel) & 0xFF) * red * srcFactor, dstFactor);
+                blend(pixel + 1, (source.pixels.get(texel + 1) & 0xFF) * green * srcFactor, dstFactor);
+                blend(pixel + 2, (source.pixels.get(texel + 2) & 0xFF) * blue * srcFactor, dstFactor);
+                // The window is opaque, but a layer keeps its alpha to be blended with the window later
+                if (layerTarget) {
+                    blend(pixel + 3, srcAlpha, dstFactor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Set one component of a target pixel to src plus dstFactor times its current value.
+     */
+    private void blend(int index, float src, float dstFactor) {
+        float value = src + (target.pixels.get(index) & 0xFF) * dstFactor;
+        target.pixels.put(index, (byte) Math.min(255, (int) (value + 0.5f)));
+    }
+
+    private static byte toByte(float component) {
+        return (byte) Math.round(Math.max(0, Math.min(1, component)) * 255);
+    }
+
+    /**
+     * Writes the frame to the outputs that are set.
+     */
+    @Override
+    void endFrame() {
+        try {
+            if (pngOutput != null) {
+                writePng(String.format(pngOutput, numFrames));
+            }
+            if (rawOutput != null) {
+                writeRaw(rawOutput);
+            }
+        } catch (IOException e) {
+            throw new BagelError("Error writing frame " + numFrames, e);
+        }
+        numFrames++;
+    }
+
+    @Override
+    void close() {
+        surfaces.clear();
+        surfaces.add(null);
+    }
+
+    @Override
+    int createTexture(int w, int h, int components, ByteBuffer pixels) {
+        Surface surface = new Surface(w, h, false);
+        if (pixels != null) {
+            // Every texture is kept as RGBA; one and two components are grey, and grey with alpha
+            int start = pixels.position();
+            for (int texel = 0; texel < w * h; texel++) {
+                int in = start + texel * components;
+                int out = texel * 4;
+                byte first = pixels.get(in);
+                surface.pixels.put(out, first);
+                surface.pixels.put(out + 1, components >= 3 ? pixels.get(in + 1) : first);
+                surface.pixels.put(out + 2, components >= 3 ? pixels.get(in + 2) : first);
+                surface.pixels.put(out + 3, components == 4 ? pixels.get(in + 3)
+                        : components == 2 ? pixels.get(in + 1) : (byte) 255);
+            }
+        }
+        surfaces.add(surface);
+        return surfaces.size() - 1;
+    }
+
+    @Override
+    void deleteTexture(int textureId) {
+        surfaces.set(textureId, null);
+    }
+
+    /**
+     * A layer is its texture, whose colours are multiplied by their alpha.
+     */
+    @Override
+    int createLayer(Texture texture) {
+        surfaces.get(texture.id()).premultiplied = true;
+        return texture.id();
+    }
+
+    @Override
+    void redrawLayer(int layerId, Texture texture, int left, int top, int right, int bottom, RenderQueue queue) {
+        // Nothing queued for the window may be drawn into the layer
+        flush();
+        Surface layer = surfaces.get(layerId);
+        setTarget(layer, Math.max(0, left), Math.max(0, top), Math.min(layer.width, right),
+                Math.min(layer.height, bottom));
+        try {
+            layer.fill(clipLeft, clipTop, clipRight, clipBottom, (byte) 0, (byte) 0, (byte) 0, (byte) 0);
+            queue.renderAll(this);
+        } finally {
+            setTarget(framebuffer, 0, 0, framebuffer.width, framebuffer.height);
+        }
+    }
+
+    @Override
+    void deleteLayer(int layerId) {
+    }
+
+    private void setTarget(Surface surface, int left, int top, int right, int bottom) {
+        target = surface;
+        clipLeft = left;
+        clipTop = top;
+        clipRight = right;
+        clipBottom = bottom;
+    }
+
+    /**
+     * RGBA pixels stored outside the heap, in rows from the top.
+     */
+    private static class Surface {
+        final int width;
+        final int height;
+        final ByteBuffer pixels;
+        // Whether the colours are already multiplied by alpha
+        boolean premultiplied;
+
+        Surface(int width, int height, boolean premultiplied) {
+            this.width = width;
+            this.height = height;
+            this.premultiplied = premultiplied;
+            pixels = BufferUtils.createByteBuffer(width * height * 4);
+        }
+
+        int offset(int x, int y) {
+            return (y * width + x) * 4;
+        }
+
+        void fill(int left, int top, int right, int bottom, byte r, byte g, byte b, byte a) {
+            for (int y = top; y < bottom; y++) {
+                for (int x = left; x < right; x++) {
+                    int pixel = offset(x, y);
+                    pixels.put(pixel, r);
+                    pixels.put(pixel + 1, g);
+                    pixels.put(pixel + 2, b);
+                    pixels.put(pixel + 3, a);
+                }
+            }
+        }
+    }
+}
@@ -5,10 +5,12 @@ import org.lwjgl.BufferUtils;
 import java.nio.ByteBuffer;
 
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL12.*;
 
 /**
  * Immutable class that represents a loaded texture.
+ *
+ * A texture may be a region of a larger GL texture (an atlas), in which case the texture coordinates it covers are
+ * given by uMin, vMin, uMax and vMax.
  */
 class Texture {
     /**
@@ -19,62 +21,93 @@ class Texture {
      * The height of the texture.
      */
     final int h;
+    /**
+     * The texture coordinates of this texture within its GL texture; (0, 0) to (1, 1) unless it is part of an atlas.
+     */
+    final float uMin;
+    final float vMin;
+    final float uMax;
+    final float vMax;
+    /**
+     * Whether the colours of the texture are already multiplied by its alpha, as a render layer's are.
+     */
+    final boolean premultiplied;
     private final int texId;
     private final String filename;
+    // Regions of an atlas share its GL texture, which only the atlas may delete
+    private final boolean ownsTexId;
 
     private static int boundTexture;
 
-    private static void bindTexture(int texId) {
+    /**
+     * Binds a GL texture, if it's not already bound. Only used with the OpenGL backend.
+     */
+    static void bindTexture(int texId) {
         if (boundTexture != texId) {
             glBindTexture(GL_TEXTURE_2D, texId);
+            FrameProfiler.count(FrameProfiler.Counter.TEXTURE_BINDS);
             boundTexture = texId;
         }
     }
 
     /**
-     * Create the texture from a byte buffer; the filename is only used for `toString`.
+     * Create the texture from a byte buffer with the given number of components (3 for RGB, 4 for RGBA), or an RGBA
+     * texture with undefined contents if the buffer is null; the filename is only used for `toString`.
      */
     Texture(String filename, int w, int h, int components, ByteBuffer buffer) {
-        this.w = w;
-        this.h = h;
-        this.filename = filename;
+        this(filename, w, h, 0, 0, 1, 1,
+                Window.get().getBackend().createTexture(w, h, components, buffer), true, false);
+    }
 
-        // GL stuff: see https://github.com/LWJGL/lwjgl3/blob/18975883e844d9dc53874836ec45257da13085d9/modules/samples/src/test/java/org/lwjgl/demo/stb/Image.java#L244
-        this.texId = glGenTextures();
-        bindTexture(texId);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_BASE_LEVEL, 0);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, 0);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-
-        int format = GL_RGBA;
-
-        if (components == 3) {
-            // Sorry. I know this makes no sense. See above link.
-            if ((w & 3) != 0) {
-                glPixelStorei(GL_UNPACK_ALIGNMENT, 2 - (w & 1));
-            }
-            format = GL_RGB;
-        }
+    Texture(int w, int h, ByteBuffer bitmap) {
+        this(w, h, bitmap, "");
+    }
 
-        glTexImage2D(GL_TEXTURE_2D, 0, format, w, h, 0, format, GL_UNSIGNED_BYTE, buffer);
+    /**
+     * Create an RGBA texture from a bitmap; the filename is only used for `toString`.
+     */
+    Texture(int w, int h, ByteBuffer bitmap, String filename) {
+        this(filename, w, h, 4, bitmap);
     }
 
-    Texture(int w, int h, ByteBuffer bitmap) {
+    /**
+     * Create a texture that is the w by h region of the atlas with its top-left at (x, y). Nothing is created by the
+     * backend.
+     */
+    Texture(Texture atlas, String filename, int x, int y, int w, int h) {
+        this(filename, w, h, (float) x / atlas.w, (float) y / atlas.h, (float) (x + w) / atlas.w,
+                (float) (y + h) / atlas.h, atlas.texId, false, atlas.premultiplied);
+    }
+
+    /**
+     * Create a w by h texture that has nothing behind it, for code that submits rendering jobs but never draws them
+     * (such as the benchmarks). Nothing is created by the backend.
+     */
+    Texture(String filename, int w, int h) {
+        this(filename, w, h, 0, 0, 1, 1, 0, false, false);
+    }
+
+    private Texture(String filename, int w, int h, float uMin, float vMin, float uMax, float vMax, int texId,
+                    boolean ownsTexId, boolean premultiplied) {
         this.w = w;
         this.h = h;
-        this.filename = "";
-        this.texId = glGenTextures();
-        bindTexture(texId);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_BASE_LEVEL, 0);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, 0);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, w, h, 0, GL_RGBA, GL_UNSIGNED_BYTE, bitmap);
+        this.filename = filename;
+        this.uMin = uMin;
+        this.vMin = vMin;
+        this.uMax = uMax;
+        this.vMax = vMax;
+        this.texId = texId;
+        this.ownsTexId = ownsTexId;
+        this.premultiplied = premultiplied;
+    }
+
+    /**
+     * Create an RGBA texture with undefined contents for a {@link RenderLayer}, whose colours are multiplied by their
+     * alpha.
+     */
+    static Texture forLayer(int w, int h) {
+        return new Texture("render layer", w, h, 0, 0, 1, 1,
+                Window.get().getBackend().createTexture(w, h, 4, null), true, true);
     }
 
     private static OnceAssignable<Texture> singlePixelTex = new OnceAssignable<>();
@@ -99,8 +132,17 @@ class Texture {
         bindTexture(texId);
     }
 
+    /**
+     * The id given to the texture by the backend, which is the same for every region of an atlas.
+     */
+    int id() {
+        return texId;
+    }
+
     void destroy() {
-        glDeleteTextures(texId);
+        if (ownsTexId) {
+            Window.get().getBackend().deleteTexture(texId);
+        }
     }
 
     @Override
@@ -108,6 +150,9 @@ class Texture {
         return "Texture: " + filename + " (tex id " + texId + ")";
     }
 
+    /**
+     * Textures are equal if they draw from the same backend texture, so regions of one atlas are all equal.
+     */
     @Override
     public boolean equals(Object rhs) {
         return rhs instanceof Texture && ((Texture) rhs).texId == texId;
@@ -1,20 +1,37 @@
 package bagel;
 
+import org.lwjgl.BufferUtils;
 import org.lwjgl.stb.STBImage;
 import org.lwjgl.system.MemoryStack;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Caches loaded textures for convenience's sake.
+ *
+ * Images can also be packed into atlases: a few large textures holding many images each, so that drawing different
+ * images one after another doesn't need to switch textures.
  */
 class TextureManager {
+    // Largest width and height of an atlas; every GL 3 driver supports textures at least this big
+    private static final int ATLAS_SIZE = 2048;
+    // Transparent pixels kept around each packed image, so that neighbouring images can never bleed into each other
+    private static final int ATLAS_PADDING = 1;
+
     private static final Map<String, Texture> loadedTextures = new HashMap<>();
+    private static final List<Texture> atlases = new ArrayList<>();
     private static final Map<FontClassification, InternalFont> loadedFonts = new HashMap<>();
 
     /**
@@ -29,6 +46,13 @@ class TextureManager {
         for (Texture tex : loadedTextures.values()) {
             tex.destroy();
         }
+        for (Texture atlas : atlases) {
+            atlas.destroy();
+        }
+        // A later window loads them again with its own backend
+        loadedTextures.clear();
+        atlases.clear();
+        loadedFonts.clear();
     }
 
     /**
@@ -37,26 +61,168 @@ class TextureManager {
     static Texture getTexture(String filename) {
         if (loadedTextures.containsKey(filename)) {
             return loadedTextures.get(filename);
-        } else if (!new File(filename).exists()) {
-            throw new BagelError("Error loading image: File " + filename + " not found (full path: " + Paths.get(filename).toAbsolutePath() + ")");
         } else {
-            try (MemoryStack stack = MemoryStack.stackPush()) {
-                IntBuffer w = stack.mallocInt(1);
-                IntBuffer h = stack.mallocInt(1);
-                IntBuffer components = stack.mallocInt(1);
-
-                ByteBuffer fname = IOUtils.stringToByteBuffer(stack, filename + '\0');
-                // Load the image
-                ByteBuffer image = STBImage.stbi_load(fname, w, h, components, 0);
-                if (image == null) {
-                    throw new BagelError("Error loading image: " + filename + ": " + STBImage.stbi_failure_reason());
-                }
-
+            PixelData image = loadPixels(filename, 0);
+            try {
                 // Create the texture object
-                Texture tex = new Texture(filename, w.get(0), h.get(0), components.get(0), image);
+                Texture tex = new Texture(filename, image.w, image.h, image.components, image.pixels);
                 loadedTextures.put(filename, tex);
                 return tex;
+            } finally {
+                STBImage.stbi_image_free(image.pixels);
+            }
+        }
+    }
+
+    /**
+     * Packs the provided images into as few atlases as possible, and caches each image as a region of its atlas.
+     * Images that are already loaded stay as they are, and images too large for an atlas are loaded on their own.
+     *
+     * Images are sorted tallest first and placed left to right in rows ("shelves"); a new shelf is started when a row
+     * is full, and a new atlas when the shelves reach the bottom.
+     */
+    static void packAtlas(Collection<String> filenames) {
+        List<PixelData> images = new ArrayList<>();
+        try {
+            for (String filename : new LinkedHashSet<>(filenames)) {
+                if (loadedTextures.containsKey(filename)) {
+                    continue;
+                }
+                PixelData image = loadPixels(filename, 4);
+                if (image.w + 2 * ATLAS_PADDING > ATLAS_SIZE || image.h + 2 * ATLAS_PADDING > ATLAS_SIZE) {
+                    loadedTextures.put(filename, new Texture(filename, image.w, image.h, 4, image.pixels));
+                    STBImage.stbi_image_free(image.pixels);
+                } else {
+                    images.add(image);
+                }
+            }
+            images.sort(Comparator.comparingInt((PixelData image) -> image.h).reversed());
+
+            int first = 0;
+            while (first < images.size()) {
+                first = packShelves(images, first);
+            }
+        } finally {
+            for (PixelData image : images) {
+                STBImage.stbi_image_free(image.pixels);
+            }
+        }
+    }
+
+    /**
+     * Packs the images listed in a manifest file, one filename per line. Blank lines and lines starting with '#' are
+     * skipped.
+     */
+    static void packAtlasFromManifest(String manifestFile) {
+        List<String> filenames = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(Paths.get(manifestFile))) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    filenames.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new BagelError("Error loading atlas manifest: " + manifestFile, e);
+        }
+        packAtlas(filenames);
+    }
+
+    /**
+     * Packs images into a single atlas, starting from images[first], until every image is packed or the atlas is full.
+     * Returns the index of the first image that did not fit.
+     */
+    private static int packShelves(List<PixelData> images, int first) {
+        int x = 0;
+        int y = 0;
+        int shelfHeight = 0;
+        int atlasWidth = 0;
+        int end = first;
+        for (; end < images.size(); end++) {
+            PixelData image = images.get(end);
+            int w = image.w + 2 * ATLAS_PADDING;
+            int h = image.h + 2 * ATLAS_PADDING;
+            if (x + w > ATLAS_SIZE) {
+                y += shelfHeight;
+                x = 0;
+                shelfHeight = 0;
             }
+            if (y + h > ATLAS_SIZE) {
+                break;
+            }
+            image.x = x + ATLAS_PADDING;
+            image.y = y + ATLAS_PADDING;
+            x += w;
+            shelfHeight = Math.max(shelfHeight, h);
+            atlasWidth = Math.max(atlasWidth, x);
+        }
+        int atlasHeight = y + shelfHeight;
+
+        // Copy each image into place, row by row; the rest of the atlas stays transparent
+        ByteBuffer pixels = BufferUtils.createByteBuffer(atlasWidth * atlasHeight * 4);
+        for (int i = first; i < end; i++) {
+            PixelData image = images.get(i);
+            ByteBuffer source = image.pixels.duplicate();
+            for (int row = 0; row < image.h; row++) {
+                source.limit((row + 1) * image.w * 4).position(row * image.w * 4);
+                pixels.position(((image.y + row) * atlasWidth + image.x) * 4);
+                pixels.put(source);
+            }
+        }
+        pixels.clear();
+
+        Texture atlas = new Texture(atlasWidth, atlasHeight, pixels, "atlas " + atlases.size());
+        atlases.add(atlas);
+        for (int i = first; i < end; i++) {
+            PixelData image = images.get(i);
+            loadedTextures.put(image.filename,
+                    new Texture(atlas, image.filename, image.x, image.y, image.w, image.h));
+        }
+        return end;
+    }
+
+    /**
+     * Loads the pixels of an image with stb_image, which must be freed with stbi_image_free.
+     * @param requiredComponents the number of components per pixel to convert the image to, or 0 to keep the image's
+     */
+    private static PixelData loadPixels(String filename, int requiredComponents) {
+        if (!new File(filename).exists()) {
+            throw new BagelError("Error loading image: File " + filename + " not found (full path: " + Paths.get(filename).toAbsolutePath() + ")");
+        }
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer components = stack.mallocInt(1);
+
+            ByteBuffer fname = IOUtils.stringToByteBuffer(stack, filename + '\0');
+            // Load the image
+            ByteBuffer image = STBImage.stbi_load(fname, w, h, components, requiredComponents);
+            if (image == null) {
+                throw new BagelError("Error loading image: " + filename + ": " + STBImage.stbi_failure_reason());
+            }
+            return new PixelData(filename, w.get(0), h.get(0),
+                    requiredComponents == 0 ? components.get(0) : requiredComponents, image);
+        }
+    }
+
+    /**
+     * An image loaded by stb_image, and where it is placed in an atlas.
+     */
+    private static class PixelData {
+        final String filename;
+        final int w;
+        final int h;
+        final int components;
+        final ByteBuffer pixels;
+        int x;
+        int y;
+
+        PixelData(String filename, int w, int h, int components, ByteBuffer pixels) {
+            this.filename = filename;
+            this.w = w;
+            this.h = h;
+            this.components = components;
+            this.pixels = pixels;
         }
     }
 
@@ -1,23 +1,14 @@
 package bagel;
 
-import org.lwjgl.glfw.GLFW;
-import org.lwjgl.glfw.GLFWErrorCallback;
-import org.lwjgl.opengl.*;
-import org.lwjgl.system.MemoryUtil;
-
 import java.util.*;
 
-import static org.lwjgl.glfw.Callbacks.glfwFreeCallbacks;
-import static org.lwjgl.glfw.GLFW.*;
-import static org.lwjgl.opengl.GL11.*;
-
 /**
- * Represents the window the game is displayed in.
+ * Represents the window the game is displayed in. What the window draws is handed to its {@link RenderBackend}.
  *
  * @author Eleanor McMurtry
  */
 public class Window {
-    private final long hWindow;
+    private final RenderBackend backend;
     private final int width;
     private final int height;
 
@@ -25,7 +16,10 @@ public class Window {
     private static float gClear = 0.6f;
     private static float bClear = 0.9f;
 
-    private List<RenderInfo> renderQueue = new ArrayList<>();
+    private final RenderQueue renderQueue = new RenderQueue();
+    // Where submitted rendering jobs go: the render queue, or a RenderLayer's queue while the layer is redrawn
+    private RenderQueue submitQueue = renderQueue;
+    private final FrameProfiler profiler = new FrameProfiler();
 
     private static final List<Runnable> actionsOnLoad = new ArrayList<>();
     static void onLoad(Runnable r) {
@@ -57,6 +51,13 @@ public class Window {
         return get().height;
     }
 
+    /**
+     * Get the profiler that measures the frames of the window. It measures nothing until it is enabled.
+     */
+    public static FrameProfiler getProfiler() {
+        return get().profiler;
+    }
+
     /**
      * Closes the current window, if one is open.
      */
@@ -81,44 +82,73 @@ public class Window {
         setClearColour((float) r, (float) g, (float) b);
     }
 
+    /**
+     * Draw images grouped by their layer, shader and texture instead of in the order they are drawn in, which needs
+     * fewer changes of texture and shader when many different images are drawn. Images that overlap must be put in
+     * different layers with {@link DrawOptions#setLayer(int)} to be drawn in the right order. Off by default.
+     */
+    public static void setSortedRendering(boolean sorted) {
+        get().renderQueue.setSorted(sorted);
+    }
+
     /**
      * Removes the throttle on the game's FPS. Should be used to work around certain platforms that have driver bugs
      * resulting in poor performance.
      */
     public static void removeFrameThrottle() {
-        glfwSwapInterval(0);
+        get().backend.setVsync(false);
     }
 
     /**
      * Close this window.
      */
     private void closeWindow() {
-        glfwSetWindowShouldClose(hWindow, true);
+        backend.requestClose();
     }
 
     /**
-     * Create a window with the specified attributes.
+     * Whether this window has been asked to close.
      */
-    Window(int width, int height, String title) {
+    boolean isClosing() {
+        return backend.isClosing();
+    }
+
+    /**
+     * The backend drawing this window.
+     */
+    RenderBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Throw away the rendering jobs submitted since the last frame without drawing them.
+     */
+    void discardRenderJobs() {
+        renderQueue.clear();
+    }
+
+    /**
+     * Send the rendering jobs submitted from now on to another queue, or back to the window's own queue if null.
+     * Returns the queue they were going to before.
+     */
+    RenderQueue redirectRenderJobs(RenderQueue queue) {
+        RenderQueue previous = submitQueue;
+        submitQueue = queue != null ? queue : renderQueue;
+        return previous;
+    }
+
+    /**
+     * Create a window with the specified attributes, drawn by the backend.
+     */
+    Window(int width, int height, String title, RenderBackend backend) {
         this.width = width;
         this.height = height;
+        this.backend = backend;
 
         close();
         currentWindow = Optional.of(this);
 
-        hWindow = GLFW.glfwCreateWindow(width, height, title, MemoryUtil.NULL, MemoryUtil.NULL);
-        if (hWindow == MemoryUtil.NULL) {
-            throw new BagelError("Failed to create GLFW window");
-        }
-
-        glfwMakeContextCurrent(hWindow);
-
-        GL.createCapabilities();
-        glEnable(GL_CULL_FACE);
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
-
-        show();
+        backend.open(width, height, title);
 
         for (Runnable r : actionsOnLoad) {
             r.run();
@@ -129,55 +159,42 @@ public class Window {
      * Set input handlers for this window.
      */
     void setInputHandlers(Input input) {
-        glfwSetKeyCallback(hWindow, (window, key, scancode, action, mode) -> input.keyboardEvent(key, action));
-        glfwSetCursorPosCallback(hWindow, input::cursorEvent);
-        glfwSetMouseButtonCallback(hWindow, (window, button, action, mods) -> input.mouseEvent(button, action));
-    }
-
-    /**
-     * Shows the window on-screen.
-     */
-    private void show() {
-        glfwSwapInterval(1);
-        glfwShowWindow(hWindow);
+        backend.setInputHandlers(input);
     }
 
     /**
      * Submit a rendering job to the queue with a specified texture and details.
      */
-    void submitRenderJob(RenderInfo info) {
-        renderQueue.add(info);
+    void submitRenderJob(Texture tex, float x, float y, DrawOptions options) {
+        submitQueue.submit(tex, x, y, options);
     }
 
     /**
      * Runs the main loop for the window.
      */
     void loop(Runnable action) {
-        glClearColor(rClear, gClear, bClear, 1.0f);
-
-        long time = System.nanoTime();
-        while (!glfwWindowShouldClose(hWindow)) {
-            glfwPollEvents();
-            glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+        while (!backend.isClosing()) {
+            profiler.beginFrame();
+            long start = profiler.start();
+            backend.pollEvents();
+            profiler.end(FrameProfiler.Phase.POLL_EVENTS, start);
+
+            backend.beginFrame(rClear, gClear, bClear);
+            // Times its own updates and rendering
             action.run();
 
-            renderQueue.forEach(RenderInfo::render);
-            renderQueue.clear();
+            start = profiler.start();
+            renderQueue.renderAll(backend);
+            start = profiler.end(FrameProfiler.Phase.RENDER_QUEUE, start);
 
-            glfwSwapBuffers(hWindow);
-
-//            long now = System.nanoTime();
-//            System.out.format("update: %.2f\n", 1000.0 / (((double) (now - time)) / 1e6));
-//            time = System.nanoTime();
+            backend.endFrame();
+            profiler.end(FrameProfiler.Phase.SWAP, start);
+            profiler.endFrame();
         }
 
         // Clean up
-        glfwFreeCallbacks(hWindow);
-        glfwDestroyWindow(hWindow);
+        profiler.stopDumping();
         TextureManager.destroy();
-
-        glfwTerminate();
-        Optional.ofNullable(glfwSetErrorCallback(null))
-                .ifPresent(GLFWErrorCallback::free);
+        backend.close();
     }
 }
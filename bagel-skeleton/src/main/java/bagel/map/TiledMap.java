@@ -40,8 +40,16 @@ public class TiledMap {
      * Build the tiled map from the provided .tmx file.
      */
     public TiledMap(String tmxFile) {
+        this(tmxFile, true);
+    }
+
+    /**
+     * Build the tiled map from the provided .tmx file, optionally without loading its tile set. The tile set needs a
+     * window for its image, so without it only the layers and object groups can be used.
+     */
+    TiledMap(String tmxFile, boolean loadTileSet) {
         String tsxFilename = parseTmx(tmxFile.replace("\\", "/"));
-        tileSet = parseTsx(tsxFilename);
+        tileSet = loadTileSet ? parseTsx(tsxFilename) : null;
     }
 
     /**
@@ -0,0 +1,132 @@
+package bagel.util;
+
+import java.util.Arrays;
+
+/**
+ * Counts non-negative values (such as durations in nanoseconds) in buckets whose width grows with the value, in the
+ * style of an HDR histogram, so that percentiles can be read from millions of values in a fixed amount of memory.
+ *
+ * Values below 256 are counted exactly. Above that, every power of two is split into 128 buckets, so a percentile is
+ * never off by more than 1/128 (under 0.8%) of its value. Values larger than 2^36 (about 69 seconds in nanoseconds)
+ * are counted as 2^36, although the exact maximum is still kept.
+ */
+public class LogHistogram {
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final long HIGHEST_TRACKABLE = 1L << 36;
+
+    private final long[] counts = new long[bucketOf(HIGHEST_TRACKABLE) + 1];
+    private long count = 0;
+    private long total = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    /**
+     * Count a value. Negative values are counted as 0.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts[bucketOf(Math.min(value, HIGHEST_TRACKABLE))]++;
+        count++;
+        total += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Add every value counted by other to this histogram.
+     */
+    public void add(LogHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forget every value counted so far.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Returns the number of values counted.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the smallest value counted, or 0 if there are none.
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Returns the largest value counted, or 0 if there are none.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the mean of the values counted, or 0 if there are none.
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Returns the value that the given percentage of the counted values are at or below, for example 99 for the 99th
+     * percentile. The result is the largest value its bucket can hold (but never more than the maximum), so it may be
+     * slightly higher than the real value but never lower.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Finds the bucket of a value: the value itself below SUB_BUCKET_COUNT, and otherwise the top SUB_BUCKET_BITS
+     * bits of the value, after the buckets of every smaller power of two.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF_SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * Finds the largest value that is counted in a bucket.
+     */
+    private static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / HALF_SUB_BUCKET_COUNT - 1;
+        long subBucket = bucket - (long) shift * HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
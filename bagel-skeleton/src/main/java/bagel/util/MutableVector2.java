@@ -0,0 +1,148 @@
+package bagel.util;
+
+/**
+ * Mutable class representing a two-dimensional real vector.
+ *
+ * Every operation changes the vector in place and returns it, so that calculations can be chained without creating
+ * any objects, for example in code that runs every frame. The results are exactly the same as the matching operations
+ * of the immutable {@link Vector2}.
+ */
+public class MutableVector2 {
+    public double x;
+    public double y;
+
+    /**
+     * Construct the zero vector.
+     */
+    public MutableVector2() {
+        this(0, 0);
+    }
+
+    /**
+     * Create a vector with a given x and y coordinate.
+     */
+    public MutableVector2(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Create a vector with the same x and y coordinates as an immutable vector.
+     */
+    public MutableVector2(Vector2 vector) {
+        this(vector.x, vector.y);
+    }
+
+    /**
+     * Sets the x and y coordinates of this vector.
+     */
+    public MutableVector2 set(double x, double y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    /**
+     * Adds (x, y) to this vector.
+     */
+    public MutableVector2 add(double x, double y) {
+        this.x += x;
+        this.y += y;
+        return this;
+    }
+
+    /**
+     * Adds rhs to this vector.
+     */
+    public MutableVector2 add(MutableVector2 rhs) {
+        return add(rhs.x, rhs.y);
+    }
+
+    /**
+     * Subtracts (x, y) from this vector.
+     */
+    public MutableVector2 sub(double x, double y) {
+        this.x -= x;
+        this.y -= y;
+        return this;
+    }
+
+    /**
+     * Subtracts rhs from this vector.
+     */
+    public MutableVector2 sub(MutableVector2 rhs) {
+        return sub(rhs.x, rhs.y);
+    }
+
+    /**
+     * Multiplies this vector by scalar.
+     */
+    public MutableVector2 mul(double scalar) {
+        x = scalar * x;
+        y = scalar * y;
+        return this;
+    }
+
+    /**
+     * Divides this vector by scalar.
+     */
+    public MutableVector2 div(double scalar) {
+        x /= scalar;
+        y /= scalar;
+        return this;
+    }
+
+    /**
+     * Returns the dot (scalar) product of this vector and (x, y).
+     */
+    public double dot(double x, double y) {
+        return this.x * x + this.y * y;
+    }
+
+    /**
+     * Returns the length of this vector.
+     */
+    public double length() {
+        return length(x, y);
+    }
+
+    /**
+     * Returns the square of the length of this vector.
+     */
+    public double lengthSquared() {
+        return dot(x, y);
+    }
+
+    /**
+     * Normalises this vector to have a length of 1 by dividing it by its length.
+     */
+    public MutableVector2 normalise() {
+        return div(length());
+    }
+
+    /**
+     * Returns the length of the vector (x, y), without creating a vector.
+     */
+    public static double length(double x, double y) {
+        return Math.sqrt(x * x + y * y);
+    }
+
+    /**
+     * Converts this vector to an immutable {@link Vector2} with the same x and y values.
+     */
+    public Vector2 toVector() {
+        return new Vector2(x, y);
+    }
+
+    /**
+     * Converts this vector to a {@link Point} with the same x and y values.
+     */
+    public Point asPoint() {
+        return new Point(x, y);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MutableVector2: (%.2f,%.2f)", x, y);
+    }
+}
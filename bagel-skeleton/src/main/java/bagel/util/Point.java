@@ -49,8 +49,18 @@ public class Point {
         return Objects.hash(x, y);
     }
 
+    /**
+     * Returns the distance between this point and b, without creating any objects.
+     */
     public double distanceTo(Point b) {
-        return asVector().sub(b.asVector()).length();
+        return distanceTo(b.x, b.y);
+    }
+
+    /**
+     * Returns the distance between this point and the point (x, y).
+     */
+    public double distanceTo(double x, double y) {
+        return MutableVector2.length(this.x - x, this.y - y);
     }
 
     @Override
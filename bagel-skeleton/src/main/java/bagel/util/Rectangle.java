@@ -141,26 +141,45 @@ public class Rectangle {
      * 5. Else return NONE
      */
     public Side intersectedAt(Point point, Vector2 velocity) {
+        return intersectedAt(left(), top(), width, height, point.x, point.y, velocity.x, velocity.y);
+    }
+
+    /**
+     * Version of {@link Rectangle#intersectedAt(Point, Vector2)} that takes the rectangle, point and velocity as
+     * primitives, so that no objects are created. Gives exactly the same result.
+     *
+     * @param left the x-coordinate of the left side of the rectangle
+     * @param top the y-coordinate of the top side of the rectangle
+     */
+    public static Side intersectedAt(double left, double top, double width, double height,
+                                     double x, double y, double dx, double dy) {
         // Calculate the centre of the point and its previous position
-        Vector2 midpoint = point.asVector().sub(velocity.div(2));
+        double midpointX = x - dx / 2;
+        double midpointY = y - dy / 2;
         // This condition handles the case where we skipped right through the rectangle
-        if (intersects(point) || intersects(midpoint.asPoint())) {
-            Vector2 centre = this.centre().asVector();
+        if (contains(left, top, width, height, x, y) || contains(left, top, width, height, midpointX, midpointY)) {
             // Therefore calculate the collision normal
             // h/t Charles (Hongwei Chen)
-            Vector2 normal = midpoint.sub(centre);
+            double normalX = midpointX - (left + width / 2.0);
+            double normalY = midpointY - (top + height / 2.0);
 
-            // Find the maximal overlap with the rectangle normals
+            // Find the maximal overlap with the rectangle normals, checked in the order left, right, up, down
             double max = Double.MIN_VALUE;
             Side bestSoFar = Side.NONE;
-
-            Vector2[] sides = new Vector2[] { Vector2.left, Vector2.right, Vector2.up, Vector2.down };
-            for (Vector2 v : sides) {
-                double res = v.dot(normal);
-                if (res > max) {
-                    max = res;
-                    bestSoFar = Side.fromVec(v);
-                }
+            if (-normalX > max) {
+                max = -normalX;
+                bestSoFar = Side.LEFT;
+            }
+            if (normalX > max) {
+                max = normalX;
+                bestSoFar = Side.RIGHT;
+            }
+            if (-normalY > max) {
+                max = -normalY;
+                bestSoFar = Side.TOP;
+            }
+            if (normalY > max) {
+                bestSoFar = Side.BOTTOM;
             }
             return bestSoFar;
         } else {
@@ -168,6 +187,70 @@ public class Rectangle {
         }
     }
 
+    /**
+     * Finds when a moving box first overlaps the given rectangle, as a fraction of its movement, so that fast objects
+     * can't skip through the rectangle between two positions.
+     *
+     * The moving box is centred at (x, y) and moves by (moveX, moveY). It overlaps the rectangle while its centre is
+     * inside the rectangle grown by half the box's size on every side, so the time is where the line of its centre
+     * enters the grown rectangle.
+     *
+     * @param halfWidth half the width of the moving box
+     * @param halfHeight half the height of the moving box
+     * @param left the x-coordinate of the left side of the rectangle
+     * @param top the y-coordinate of the top side of the rectangle
+     * @return the fraction (0 to 1) of the movement at which the box starts overlapping the rectangle, or
+     *         Double.POSITIVE_INFINITY if it doesn't, or if it already overlaps it before moving
+     */
+    public static double timeOfImpact(double x, double y, double moveX, double moveY, double halfWidth,
+                                      double halfHeight, double left, double top, double width, double height) {
+        double minX = left - halfWidth;
+        double maxX = left + width + halfWidth;
+        double minY = top - halfHeight;
+        double maxY = top + height + halfHeight;
+
+        double entryX;
+        double exitX;
+        if (moveX == 0) {
+            if (x <= minX || x >= maxX) {
+                return Double.POSITIVE_INFINITY;
+            }
+            entryX = Double.NEGATIVE_INFINITY;
+            exitX = Double.POSITIVE_INFINITY;
+        } else {
+            entryX = Math.min((minX - x) / moveX, (maxX - x) / moveX);
+            exitX = Math.max((minX - x) / moveX, (maxX - x) / moveX);
+        }
+
+        double entryY;
+        double exitY;
+        if (moveY == 0) {
+            if (y <= minY || y >= maxY) {
+                return Double.POSITIVE_INFINITY;
+            }
+            entryY = Double.NEGATIVE_INFINITY;
+            exitY = Double.POSITIVE_INFINITY;
+        } else {
+            entryY = Math.min((minY - y) / moveY, (maxY - y) / moveY);
+            exitY = Math.max((minY - y) / moveY, (maxY - y) / moveY);
+        }
+
+        double entry = Math.max(entryX, entryY);
+        double exit = Math.min(exitX, exitY);
+        if (entry >= exit || entry < 0 || entry > 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return entry;
+    }
+
+    /**
+     * Returns whether the point (x, y) lies inside the given rectangle (including its edges).
+     */
+    private static boolean contains(double left, double top, double width, double height, double x, double y) {
+        return x >= left && x <= left + width
+            && y >= top && y <= top + height;
+    }
+
     @Override
     public String toString() {
         return "Rectangle: top left: " + topLeft() + ", width: " + width + ", height: " + height;
@@ -1,21 +1,19 @@
 #version 330
 in vec4 coord;
 in vec2 TexCoord;
+in vec4 blend;
+// xOffset, yOffset, xMax, yMax
+in vec4 section;
 
 uniform sampler2D ourTexture;
-uniform vec4 blend;
-uniform float xOffset;
-uniform float yOffset;
-uniform float xMax;
-uniform float yMax;
 
 out vec4 frag_colour;
 
 void main(void) {
     gl_FragDepth = coord.z;
     vec4 blendActual = blend;
-    if (TexCoord.x < xOffset || TexCoord.x > xMax || TexCoord.y < yOffset || TexCoord.y > yMax) {
+    if (TexCoord.x < section.x || TexCoord.x > section.z || TexCoord.y < section.y || TexCoord.y > section.w) {
         blendActual = vec4(0, 0, 0, 0);
     }
     frag_colour = texture(ourTexture, TexCoord) * blendActual;
-}
\ No newline at end of file
+}
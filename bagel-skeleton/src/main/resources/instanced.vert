@@ -0,0 +1,42 @@
+#version 330
+// The corner of the unit quad, shared by every sprite
+layout (location = 0) in vec2 corner;
+layout (location = 1) in vec2 cornerTexCoord;
+// One of each per sprite (instance)
+layout (location = 2) in vec4 inBlend;
+layout (location = 3) in vec4 inSection;
+// x, y, width, height in pixels
+layout (location = 4) in vec4 transform;
+// uMin, vMin, uSize, vSize of the texture's region of its GL texture
+layout (location = 5) in vec4 region;
+layout (location = 6) in float rotation;
+
+uniform float width;
+uniform float height;
+// -1 when drawing into a RenderLayer, which stores its rows top first like a loaded image
+uniform float yDirection;
+
+out vec2 TexCoord;
+out vec4 coord;
+out vec4 blend;
+out vec4 section;
+
+void main(void) {
+    // Scale, then rotate, then translate
+    vec2 scaled = corner * transform.zw;
+    float c = cos(rotation);
+    float s = sin(rotation);
+    vec2 position = transform.xy + vec2(c * scaled.x - s * scaled.y, s * scaled.x + c * scaled.y);
+
+    mat4 ortho = mat4(2.0 / width,  0.0,          0.0, -1.0,
+                      0.0,         -2.0 * yDirection / height, 0.0, yDirection,
+                      0.0,          0.0,          0.0,  0.0,
+                      0.0,          0.0,          0.0,  1.0);
+
+     // GL matrices are column major for some reason, so transpose
+    gl_Position = transpose(ortho) * vec4(position, 0.0, 1.0);
+    TexCoord = region.xy + cornerTexCoord * region.zw;
+    coord = gl_Position;
+    blend = inBlend;
+    section = inSection;
+}
@@ -0,0 +1,253 @@
+import bagel.util.Point;
+import bagel.util.Rectangle;
+import bagel.util.Side;
+import bagel.util.Vector2;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that Peg.onCollide, which works out the side the ball hit using only doubles, bounces the ball exactly the
+ * way the original version did when it put the ball's corners into a list, streamed them and used Vector2. The
+ * original version is kept below as the reference.
+ */
+public class PegCollisionTest {
+    private static final long SEED = 42;
+    private static final int RANDOM_CONTACTS = 20000;
+    private static final double BLAST_RADIUS = 70;
+
+    @Test
+    public void cornerHitsBounceLikeTheVector2Version() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (Peg.Shape shape : Peg.Shape.values()) {
+            Peg peg = new BluePeg(shape, 500, 400);
+            Ball ball = new Ball(0, 0, false, true);
+            double overlapX = (peg.getWidth() + ball.getWidth()) / 2;
+            double overlapY = (peg.getHeight() + ball.getHeight()) / 2;
+            for (int i = 0; i < RANDOM_CONTACTS; i++) {
+                // only one corner of the ball is inside the peg when the ball is near one of the peg's corners
+                double x = peg.getX() + sign(random) * (overlapX - random.nextDouble(Math.min(overlapX, 2)));
+                double y = peg.getY() + sign(random) * (overlapY - random.nextDouble(Math.min(overlapY, 2)));
+                checkBounce(peg, x, y, random);
+            }
+        }
+    }
+
+    @Test
+    public void sideHitsBounceLikeTheVector2Version() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (Peg.Shape shape : Peg.Shape.values()) {
+            Peg peg = new BluePeg(shape, 500, 400);
+            Ball ball = new Ball(0, 0, false, true);
+            double overlapX = (peg.getWidth() + ball.getWidth()) / 2;
+            double overlapY = (peg.getHeight() + ball.getHeight()) / 2;
+            for (int i = 0; i < RANDOM_CONTACTS; i++) {
+                // the ball is over the middle of one side, so the two corners on that side are inside the peg
+                double along = (random.nextDouble() - 0.5) * Math.abs(peg.getWidth() - ball.getWidth());
+                double into = overlapY - random.nextDouble(Math.min(overlapY, 4));
+                checkBounce(peg, peg.getX() + along, peg.getY() + sign(random) * into, random);
+
+                along = (random.nextDouble() - 0.5) * Math.abs(peg.getHeight() - ball.getHeight());
+                into = overlapX - random.nextDouble(Math.min(overlapX, 4));
+                checkBounce(peg, peg.getX() + sign(random) * into, peg.getY() + along, random);
+            }
+        }
+    }
+
+    @Test
+    public void anyOverlapBouncesLikeTheVector2Version() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (Peg.Shape shape : Peg.Shape.values()) {
+            Peg peg = new BluePeg(shape, 500, 400);
+            Ball ball = new Ball(0, 0, false, true);
+            double overlapX = (peg.getWidth() + ball.getWidth()) / 2;
+            double overlapY = (peg.getHeight() + ball.getHeight()) / 2;
+            for (int i = 0; i < RANDOM_CONTACTS; i++) {
+                // whole, half and arbitrary pixel positions
+                double x = peg.getX() + round(random, random.nextDouble(-overlapX, overlapX));
+                double y = peg.getY() + round(random, random.nextDouble(-overlapY, overlapY));
+                checkBounce(peg, x, y, random);
+            }
+        }
+    }
+
+    @Test
+    public void fireballRemovesThePegsInTheBlastRadius() {
+        World world = new World();
+        PegGrid grid = new PegGrid(world);
+        List<Peg> pegs = new ArrayList<>();
+        for (double x = 20; x < world.getWidth(); x += 23) {
+            for (double y = 20; y < world.getHeight(); y += 17) {
+                Peg peg = new BluePeg(Peg.Shape.CIRCULAR, x, y);
+                pegs.add(peg);
+                grid.add(peg);
+            }
+        }
+
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < 200; i++) {
+            for (Peg peg : pegs) {
+                peg.setShouldBeRemoved(false);
+            }
+            Peg hit = pegs.get(random.nextInt(pegs.size()));
+            Ball ball = new Ball(hit.getX() + 5, hit.getY() - 5, true, true);
+            ball.setFireball(true);
+            hit.onCollide(ball, grid);
+
+            for (Peg peg : pegs) {
+                checkBlast(hit, peg);
+            }
+        }
+    }
+
+    @Test
+    public void fireballBlastEdgeIsTheSameAsTheHypotVersion() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < RANDOM_CONTACTS; i++) {
+            World world = new World();
+            PegGrid grid = new PegGrid(world);
+            Peg hit = new BluePeg(Peg.Shape.CIRCULAR, random.nextDouble(100, world.getWidth() - 100),
+                    random.nextDouble(100, world.getHeight() - 100));
+            grid.add(hit);
+
+            // pegs on the edge of the blast radius along the axes and at a random angle, then 1 and 2 ulps further
+            // out and further in
+            double angle = random.nextDouble(2 * Math.PI);
+            double[][] edges = {
+                    { BLAST_RADIUS, 0 }, { 0, -BLAST_RADIUS },
+                    { BLAST_RADIUS * Math.cos(angle), BLAST_RADIUS * Math.sin(angle) }
+            };
+            List<Peg> pegs = new ArrayList<>();
+            for (double[] edge : edges) {
+                double x = hit.getX() + edge[0];
+                double y = hit.getY() + edge[1];
+                pegs.add(new BluePeg(Peg.Shape.CIRCULAR, x, y));
+                pegs.add(new BluePeg(Peg.Shape.CIRCULAR, nudge(x, hit.getX(), 1), y));
+                pegs.add(new BluePeg(Peg.Shape.CIRCULAR, nudge(x, hit.getX(), 2), y));
+                pegs.add(new BluePeg(Peg.Shape.CIRCULAR, nudge(x, hit.getX(), -1), nudge(y, hit.getY(), -1)));
+                pegs.add(new BluePeg(Peg.Shape.CIRCULAR, x, nudge(y, hit.getY(), 1)));
+            }
+            for (Peg peg : pegs) {
+                grid.add(peg);
+            }
+
+            Ball ball = new Ball(hit.getX() + 5, hit.getY() - 5, true, true);
+            ball.setFireball(true);
+            hit.onCollide(ball, grid);
+            for (Peg peg : pegs) {
+                checkBlast(hit, peg);
+            }
+        }
+    }
+
+    /**
+     * checks that a fireball hitting the peg hit removed the other peg if and only if the original onCollide, which
+     * took the distance between them with Math.hypot, would have
+     */
+    private static void checkBlast(Peg hit, Peg peg) {
+        boolean inBlast = Math.hypot(hit.getPosition().x - peg.getPosition().x,
+                hit.getPosition().y - peg.getPosition().y) <= BLAST_RADIUS;
+        assertEquals("peg at " + peg.getPosition() + " after hitting " + hit.getPosition(),
+                inBlast, peg.isShouldBeRemoved());
+    }
+
+    /**
+     * moves the coordinate the given number of ulps away from centre, or towards it if ulps is negative
+     */
+    private static double nudge(double coordinate, double centre, int ulps) {
+        double direction = (coordinate >= centre) == (ulps > 0) ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < Math.abs(ulps); i++) {
+            coordinate = Math.nextAfter(coordinate, direction);
+        }
+        return coordinate;
+    }
+
+    /**
+     * collides a ball centred at (x, y) with a random velocity with the peg, and checks that it bounces the same way
+     * as it does with the reference version
+     */
+    private static void checkBounce(Peg peg, double x, double y, SplittableRandom random) {
+        double dx = random.nextDouble(-10, 10);
+        double dy = random.nextDouble(-10, 10);
+        Ball ball = new Ball(x, y, false, true);
+        ball.setDx(dx);
+        ball.setDy(dy);
+        Ball expected = new Ball(x, y, false, true);
+        expected.setDx(dx);
+        expected.setDy(dy);
+
+        peg.onCollide(ball, new PegGrid(new World()));
+        expected.bounceOff(referenceSide(peg, expected));
+
+        String contact = "ball at (" + x + ", " + y + ") moving (" + dx + ", " + dy + ") hitting a "
+                + peg.getShape() + " peg";
+        assertEquals(contact, expected.getDx(), ball.getDx(), 0);
+        assertEquals(contact, expected.getDy(), ball.getDy(), 0);
+    }
+
+    /**
+     * the side found by the original onCollide, which averaged the corners of the ball inside the peg with streams
+     */
+    private static Side referenceSide(Peg peg, Ball ball) {
+        Rectangle pegBox = peg.getBoundingBox();
+        Rectangle ballBox = ball.getBoundingBox();
+        List<Point> corners = new ArrayList<>();
+        corners.add(ballBox.bottomRight());
+        corners.add(ballBox.bottomLeft());
+        corners.add(ballBox.topLeft());
+        corners.add(ballBox.topRight());
+
+        List<Point> intersectingPoints = corners
+                .stream()
+                .filter(pegBox::intersects)
+                .collect(Collectors.toList());
+        double averageX = intersectingPoints.stream().mapToDouble(o -> o.x).sum() / intersectingPoints.size();
+        double averageY = intersectingPoints.stream().mapToDouble(o -> o.y).sum() / intersectingPoints.size();
+        return referenceIntersectedAt(pegBox, new Point(averageX, averageY), new Vector2(ball.getDx(), ball.getDy()));
+    }
+
+    /**
+     * the original Rectangle.intersectedAt(Point, Vector2), which worked with Vector2 throughout
+     */
+    private static Side referenceIntersectedAt(Rectangle rectangle, Point point, Vector2 velocity) {
+        Vector2 midpoint = point.asVector().sub(velocity.div(2));
+        if (rectangle.intersects(point) || rectangle.intersects(midpoint.asPoint())) {
+            Vector2 normal = midpoint.sub(rectangle.centre().asVector());
+            double max = Double.MIN_VALUE;
+            Side bestSoFar = Side.NONE;
+            Vector2[] sides = new Vector2[] { Vector2.left, Vector2.right, Vector2.up, Vector2.down };
+            for (Vector2 v : sides) {
+                double res = v.dot(normal);
+                if (res > max) {
+                    max = res;
+                    bestSoFar = Side.fromVec(v);
+                }
+            }
+            return bestSoFar;
+        }
+        return Side.NONE;
+    }
+
+    private static double sign(SplittableRandom random) {
+        return random.nextBoolean() ? 1 : -1;
+    }
+
+    /**
+     * rounds the offset to a whole or half pixel two times out of three, since pegs and balls often sit on them
+     */
+    private static double round(SplittableRandom random, double offset) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return Math.rint(offset);
+            case 1:
+                return Math.rint(offset * 2) / 2;
+            default:
+                return offset;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the stats of a batch of games add up: every time a level is started it is either cleared, the game ends
+ * on it or the game is given up on, including when a level is cleared with the last shot.
+ */
+public class SimulationStatsTest {
+    private static final long GAMES = 200;
+    private static final long SEED = 0;
+
+    @Test
+    public void randomAimStatsAddUp() {
+        checkStats("random", BatchSimulator.run(GAMES, SEED, AimPolicy.RANDOM));
+    }
+
+    @Test
+    public void redPegAimStatsAddUp() {
+        checkStats("red", BatchSimulator.run(GAMES, SEED, AimPolicy.RED_PEG));
+    }
+
+    private static void checkStats(String policy, SimulationStats stats) {
+        assertEquals(policy + ": games over", GAMES, stats.getGames());
+        for (int level = 0; level < Simulation.MAX_LEVEL; level++) {
+            assertEquals(policy + ": level " + level + " started", stats.getLevelsStarted(level),
+                    stats.getLevelsCleared(level) + stats.getGamesEnded(level) + stats.getGamesGivenUp(level));
+        }
+        for (int level = 1; level < Simulation.MAX_LEVEL; level++) {
+            assertEquals(policy + ": level " + level + " started after clearing level " + (level - 1),
+                    stats.getLevelsCleared(level - 1), stats.getLevelsStarted(level));
+        }
+        assertEquals(policy + ": every level cleared", stats.getLevelsCleared(Simulation.MAX_LEVEL - 1),
+                stats.getGamesEnded(Simulation.MAX_LEVEL));
+    }
+}